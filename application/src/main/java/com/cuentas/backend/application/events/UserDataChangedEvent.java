@@ -0,0 +1,17 @@
+package com.cuentas.backend.application.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Evento publicado por los casos de uso de escritura cuando cambian los datos de un usuario.
+ * entity indica la tabla principal afectada ("transactions", "assets", "liabilities", "budgets"...).
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class UserDataChangedEvent {
+    private final Long userId;
+    private final String entity;
+}
@@ -0,0 +1,7 @@
+package com.cuentas.backend.application.ports.driven;
+
+import com.cuentas.backend.domain.BudgetAlert;
+
+public interface NotificationSenderPort {
+    void sendBudgetAlert(BudgetAlert alert);
+}
@@ -3,8 +3,13 @@ package com.cuentas.backend.application.ports.driving;
 import com.cuentas.backend.domain.Asset;
 import com.cuentas.backend.domain.AssetDetail;
 import com.cuentas.backend.domain.AssetROI;
+import com.cuentas.backend.domain.AssetReturns;
 import com.cuentas.backend.domain.AssetValue;
+import com.cuentas.backend.domain.AssetValuePage;
+import com.cuentas.backend.domain.CreateAssetValueRequest;
 import com.cuentas.backend.domain.MonthlyROI;
+import com.cuentas.backend.domain.PortfolioROI;
+import com.cuentas.backend.domain.PortfolioReturns;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -13,14 +18,21 @@ public interface AssetServicePort {
     Asset createAsset(Long userId, Asset asset);
     Asset getAsset(Long userId, Long assetId);
     List<Asset> listAssets(Long userId);
+    List<Asset> listAssets(Long userId, Integer values, LocalDate valuesFrom, LocalDate valuesTo);
+    AssetValuePage listAssetValues(Long userId, Long assetId, String cursor, Integer limit);
     Asset updateAsset(Long userId, Long assetId, Asset asset);
     void deleteAsset(Long userId, Long assetId);
     AssetValue upsertAssetValue(Long userId, Long assetId, LocalDate valuationDate, Double currentValue, Double acquisitionValue);
+    List<AssetValue> upsertAssetValues(Long userId, List<CreateAssetValueRequest> values);
     AssetValue updateAssetValue(Long userId, Long assetId, Long valuationId, LocalDate valuationDate, Double currentValue, Double acquisitionValue);
     void deleteAssetValue(Long userId, Long assetId, Long valuationId);
     AssetROI calculateAssetROI(Long userId, Long assetId, LocalDate startDate, LocalDate endDate);
     List<MonthlyROI> calculateMonthlyROI(Long userId, Long assetId, Integer year);
+    PortfolioROI calculatePortfolioROI(Long userId, LocalDate startDate, LocalDate endDate, Integer year);
+    PortfolioReturns getPortfolioReturns(Long userId);
+    AssetReturns getAssetReturns(Long userId, Long assetId);
     AssetDetail getAssetDetail(Long userId, Long assetId);
+    AssetDetail getAssetDetail(Long userId, Long assetId, String cursor, Integer limit);
     Asset getPrimaryAsset(Long userId);
     Asset setPrimaryAsset(Long userId, Long assetId);
 }
@@ -1,6 +1,7 @@
 package com.cuentas.backend.application.ports.driving;
 
 import com.cuentas.backend.domain.Budget;
+import com.cuentas.backend.domain.BudgetHistory;
 import com.cuentas.backend.domain.BudgetStatus;
 import java.util.List;
 
@@ -11,5 +12,6 @@ public interface BudgetServicePort {
     Budget updateBudget(Long userId, Long budgetId, Budget budget);
     void deleteBudget(Long userId, Long budgetId);
     BudgetStatus getBudgetStatus(Long userId);
+    List<BudgetHistory> getBudgetHistory(Long userId, Long budgetId);
 }
 
@@ -0,0 +1,8 @@
+package com.cuentas.backend.application.ports.driving;
+
+import com.cuentas.backend.domain.CacheStats;
+import java.util.List;
+
+public interface CacheStatsServicePort {
+    List<CacheStats> getCacheStats();
+}
@@ -0,0 +1,9 @@
+package com.cuentas.backend.application.ports.driving;
+
+import com.cuentas.backend.domain.CategoryMergeJob;
+import com.cuentas.backend.domain.CategoryMergeRequest;
+
+public interface CategoryMergeServicePort {
+    CategoryMergeJob startMerge(Long userId, CategoryMergeRequest request);
+    CategoryMergeJob getMergeJob(Long userId, Long jobId);
+}
@@ -2,15 +2,21 @@ package com.cuentas.backend.application.ports.driving;
 
 import com.cuentas.backend.domain.Category;
 import com.cuentas.backend.domain.CategoryDetail;
+import com.cuentas.backend.domain.CategoryTreeNode;
+
+import java.time.LocalDate;
 import java.util.List;
 
 public interface CategoryServicePort {
     Category createCategory(Long userId, Category category);
     Category getCategory(Long userId, Long categoryId);
     List<Category> listCategories(Long userId);
+    List<Category> autocompleteCategories(Long userId, String prefix, Integer limit);
     Category updateCategory(Long userId, Long categoryId, Category category);
     void deleteCategory(Long userId, Long categoryId);
     List<Category> getSubcategories(Long userId, Long parentCategoryId);
     CategoryDetail getCategoryDetail(Long userId, Long categoryId);
+    CategoryDetail getCategoryDetail(Long userId, Long categoryId, String cursor, Integer limit);
+    List<CategoryTreeNode> getCategoryTree(Long userId, Long rootCategoryId, LocalDate startDate, LocalDate endDate);
     void reassignTransactions(Long userId, Long fromCategoryId, Long toCategoryId);
 }
@@ -15,5 +15,6 @@ public interface DashboardServicePort {
     AssetPerformance getAssetPerformance(Long userId, Long assetId, LocalDate startDate, LocalDate endDate);
     LiabilityProgress getLiabilityProgress(Long userId, Long liabilityId);
     List<PeriodSummary> getMonthlySummary(Long userId, Integer year);
+    List<PeriodSummary> getMonthlySummary(Long userId, Integer startYear, Integer endYear);
     PeriodSummary getPeriodSummary(Long userId, String period);
 }
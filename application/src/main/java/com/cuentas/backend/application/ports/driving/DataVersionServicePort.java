@@ -0,0 +1,5 @@
+package com.cuentas.backend.application.ports.driving;
+
+public interface DataVersionServicePort {
+    long getDataVersion(Long userId);
+}
@@ -1,9 +1,11 @@
 package com.cuentas.backend.application.ports.driving;
 
+import com.cuentas.backend.domain.CreateLiabilityValueRequest;
 import com.cuentas.backend.domain.Interest;
 import com.cuentas.backend.domain.Liability;
 import com.cuentas.backend.domain.LiabilityDetail;
 import com.cuentas.backend.domain.LiabilityValue;
+import com.cuentas.backend.domain.LiabilityValuePage;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -11,12 +13,16 @@ public interface LiabilityServicePort {
     Liability createLiability(Long userId, Liability liability);
     Liability getLiability(Long userId, Long liabilityId);
     List<Liability> listLiabilities(Long userId);
+    List<Liability> listLiabilities(Long userId, Integer values, LocalDate valuesFrom, LocalDate valuesTo);
+    LiabilityValuePage listLiabilityValues(Long userId, Long liabilityId, String cursor, Integer limit);
     Liability updateLiability(Long userId, Long liabilityId, Liability liability);
     void deleteLiability(Long userId, Long liabilityId);
     LiabilityValue upsertLiabilityValue(Long userId, Long liabilityId, LocalDate valuationDate, Double outstandingBalance, LocalDate endDate);
+    List<LiabilityValue> upsertLiabilityValues(Long userId, List<CreateLiabilityValueRequest> values);
     Interest createInterest(Long userId, Long liabilityId, String type, Double annualRate, LocalDate startDate);
     Interest updateInterest(Long userId, Long liabilityId, Long interestId, String type, Double annualRate, LocalDate startDate);
     void deleteInterest(Long userId, Long liabilityId, Long interestId);
     List<Interest> getInterests(Long userId, Long liabilityId);
     LiabilityDetail getLiabilityDetail(Long userId, Long liabilityId);
+    LiabilityDetail getLiabilityDetail(Long userId, Long liabilityId, String cursor, Integer limit);
 }
@@ -0,0 +1,9 @@
+package com.cuentas.backend.application.ports.driving;
+
+import com.cuentas.backend.domain.SpendingRangeTotal;
+
+import java.time.LocalDate;
+
+public interface SpendingServicePort {
+    SpendingRangeTotal getRangeTotal(Long userId, Long categoryId, String type, LocalDate startDate, LocalDate endDate);
+}
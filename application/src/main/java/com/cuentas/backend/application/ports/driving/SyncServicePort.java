@@ -0,0 +1,7 @@
+package com.cuentas.backend.application.ports.driving;
+
+import com.cuentas.backend.domain.SyncDelta;
+
+public interface SyncServicePort {
+    SyncDelta getChangesSince(Long userId, String watermark);
+}
@@ -1,14 +1,24 @@
 package com.cuentas.backend.application.ports.driving;
 
+import com.cuentas.backend.domain.BulkTransactionResult;
+import com.cuentas.backend.domain.CategorySuggestion;
 import com.cuentas.backend.domain.Transaction;
+import com.cuentas.backend.domain.TransactionPage;
+import com.cuentas.backend.domain.TransactionSearchPage;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface TransactionServicePort {
     Transaction createTransaction(Long userId, Transaction transaction);
+    BulkTransactionResult createTransactions(Long userId, List<Transaction> transactions);
     Transaction getTransaction(Long userId, Long transactionId);
     List<Transaction> listTransactions(Long userId, LocalDate startDate, LocalDate endDate, Long liabilityId, Long assetId, Long categoryId, Long relatedAssetId);
+    TransactionPage listTransactions(Long userId, LocalDate startDate, LocalDate endDate, Long liabilityId, Long assetId, Long categoryId, Long relatedAssetId, String cursor, Integer limit);
+    TransactionSearchPage searchTransactions(Long userId, String query, Integer page, Integer size);
+    CategorySuggestion suggestCategory(Long userId, String description, String type);
+    void streamTransactions(Long userId, LocalDate startDate, LocalDate endDate, Consumer<Transaction> consumer);
     Transaction updateTransaction(Long userId, Long transactionId, Transaction transaction);
     void deleteTransaction(Long userId, Long transactionId);
 }
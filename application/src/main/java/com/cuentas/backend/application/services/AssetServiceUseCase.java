@@ -2,6 +2,8 @@ package com.cuentas.backend.application.services;
 
 import com.cuentas.backend.application.ports.driving.AssetServicePort;
 import com.cuentas.backend.domain.*;
+import com.cuentas.backend.application.events.UserDataChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,23 +15,81 @@ import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Service
 public class AssetServiceUseCase implements AssetServicePort {
 
     private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AssetReturnsCache returnsCache;
     private static final String SQL_SELECT_ASSET_VALUES_BY_ASSET =
             "SELECT value_id, asset_id, valuation_date, current_value, created_at " +
                     "FROM asset_values WHERE asset_id = ? ORDER BY valuation_date";
 
-    private static final String SQL_SELECT_ASSET_VALUES_BY_USER =
+    // Últimas N valoraciones de cada activo dentro de la ventana: LATERAL + LIMIT lee solo N filas
+    // del índice (asset_id, valuation_date DESC, value_id DESC) por activo, sin recorrer el historial
+    private static final String SQL_SELECT_LATEST_ASSET_VALUES_BY_USER =
+            "SELECT v.* FROM assets a " +
+                    "CROSS JOIN LATERAL ( " +
+                    "  SELECT av.value_id, av.asset_id, av.valuation_date, av.current_value, av.created_at " +
+                    "  FROM asset_values av " +
+                    "  WHERE av.asset_id = a.asset_id " +
+                    "  AND av.valuation_date >= COALESCE(?::date, '-infinity'::date) " +
+                    "  AND av.valuation_date <= COALESCE(?::date, 'infinity'::date) " +
+                    "  ORDER BY av.valuation_date DESC, av.value_id DESC LIMIT ? " +
+                    ") v " +
+                    "WHERE a.user_id = ? " +
+                    "ORDER BY v.asset_id, v.valuation_date, v.value_id";
+
+    private static final String SQL_SELECT_ASSET_VALUES_PAGE =
             "SELECT av.value_id, av.asset_id, av.valuation_date, av.current_value, av.created_at " +
                     "FROM asset_values av JOIN assets a ON av.asset_id = a.asset_id " +
-                    "WHERE a.user_id = ? ORDER BY av.asset_id, av.valuation_date";
-    public AssetServiceUseCase(JdbcTemplate jdbcTemplate) {
+                    "WHERE a.user_id = ? AND av.asset_id = ?";
+    // Alta o actualización de la valoración del día en una sola sentencia; sin filas si el activo no es del usuario
+    private static final String SQL_UPSERT_ASSET_VALUE =
+            "INSERT INTO asset_values (asset_id, valuation_date, current_value) " +
+                    "SELECT a.asset_id, ?, ? FROM assets a WHERE a.user_id = ? AND a.asset_id = ? " +
+                    "ON CONFLICT (asset_id, valuation_date) DO UPDATE SET current_value = EXCLUDED.current_value " +
+                    "RETURNING value_id";
+
+    private static final String SQL_SELECT_OWNED_ASSET_IDS =
+            "SELECT asset_id FROM assets WHERE user_id = ? AND asset_id = ANY(?::int[])";
+
+    // Carga masiva: N valoraciones en una única sentencia a partir de arrays paralelos
+    private static final String SQL_UPSERT_ASSET_VALUES =
+            "INSERT INTO asset_values (asset_id, valuation_date, current_value) " +
+                    "SELECT * FROM unnest(?::int[], ?::date[], ?::numeric[]) " +
+                    "ON CONFLICT (asset_id, valuation_date) DO UPDATE SET current_value = EXCLUDED.current_value " +
+                    "RETURNING value_id, asset_id, valuation_date, current_value, created_at";
+
+    private static final int MAX_BULK_VALUES = 5000;
+
+    // ROI de cartera: ingresos y gastos de todos los activos del usuario en un solo recorrido
+    // (índice parcial idx_transactions_user_related_asset_date_id)
+    private static final String SQL_PORTFOLIO_MONTHLY_TOTALS =
+            "SELECT related_asset_id, DATE_TRUNC('month', transaction_date)::date AS month, " +
+                    "COALESCE(SUM(amount) FILTER (WHERE transaction_type = 'income'), 0) AS income, " +
+                    "COALESCE(SUM(amount) FILTER (WHERE transaction_type = 'expense'), 0) AS expenses " +
+                    "FROM transactions " +
+                    "WHERE user_id = ? AND related_asset_id IS NOT NULL " +
+                    "AND transaction_date >= COALESCE(?::date, '-infinity'::date) " +
+                    "AND transaction_date <= COALESCE(?::date, 'infinity'::date) " +
+                    "GROUP BY related_asset_id, month";
+
+    private static final String SQL_PORTFOLIO_ASSETS =
+            "SELECT asset_id, name, acquisition_value, current_value, current_value_date " +
+                    "FROM assets WHERE user_id = ? ORDER BY asset_id";
+
+    public AssetServiceUseCase(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher, AssetReturnsCache returnsCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.returnsCache = returnsCache;
     }
 
     @Override
@@ -57,6 +117,7 @@ public class AssetServiceUseCase implements AssetServicePort {
 
         asset.setAssetId(id);
         asset.setUserId(userId);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "asset"));
         return asset;
     }
 
@@ -75,6 +136,17 @@ public class AssetServiceUseCase implements AssetServicePort {
 
     @Override
     public List<Asset> listAssets(Long userId) {
+        return listAssets(userId, null, null, null);
+    }
+
+    /**
+     * Activos con su última valoración, o las últimas {@code values} dentro de [valuesFrom, valuesTo]
+     * (ver ValuationWindow). El historial completo se pagina con listAssetValues.
+     */
+    @Override
+    public List<Asset> listAssets(Long userId, Integer values, LocalDate valuesFrom, LocalDate valuesTo) {
+        int valuesPerAsset = ValuationWindow.valuesPerItem(values, valuesFrom, valuesTo);
+
         String sql = "SELECT * FROM assets WHERE user_id = ?";
         List<Asset> assets = jdbcTemplate.query(sql, (rs, rowNum) -> mapRow(rs), userId);
 
@@ -82,10 +154,12 @@ public class AssetServiceUseCase implements AssetServicePort {
 
         // Map asset_id -> list of AssetValue
         Map<Long, List<AssetValue>> valuesMap = new HashMap<>();
-        jdbcTemplate.query(SQL_SELECT_ASSET_VALUES_BY_USER, rs -> {
-            AssetValue av = mapAssetValue(rs);
-            valuesMap.computeIfAbsent(av.getAssetId(), k -> new ArrayList<>()).add(av);
-        }, userId);
+        if (valuesPerAsset > 0) {
+            jdbcTemplate.query(SQL_SELECT_LATEST_ASSET_VALUES_BY_USER, rs -> {
+                AssetValue av = mapAssetValue(rs);
+                valuesMap.computeIfAbsent(av.getAssetId(), k -> new ArrayList<>()).add(av);
+            }, valuesFrom, valuesTo, valuesPerAsset, userId);
+        }
 
         for (Asset asset : assets) {
             List<AssetValue> vals = valuesMap.getOrDefault(asset.getAssetId(), new ArrayList<>());
@@ -95,6 +169,37 @@ public class AssetServiceUseCase implements AssetServicePort {
         return assets;
     }
 
+    /**
+     * Historial completo de valoraciones de un activo, de la más reciente a la más antigua, por keyset.
+     */
+    @Override
+    public AssetValuePage listAssetValues(Long userId, Long assetId, String cursor, Integer limit) {
+        int pageSize = TransactionKeyset.pageSize(limit, ValuationWindow.DEFAULT_PAGE_SIZE, ValuationWindow.MAX_PAGE_SIZE);
+
+        StringBuilder sql = new StringBuilder(SQL_SELECT_ASSET_VALUES_PAGE);
+        List<Object> params = new ArrayList<>(List.of(userId, assetId));
+        if (cursor != null && !cursor.isBlank()) {
+            Object[] position = TransactionKeyset.decodeCursor(cursor);
+            sql.append(" AND (av.valuation_date, av.value_id) < (?, ?)");
+            params.add(position[0]);
+            params.add(position[1]);
+        }
+        sql.append(" ORDER BY av.valuation_date DESC, av.value_id DESC LIMIT ?");
+        params.add(pageSize + 1);
+
+        List<AssetValue> rows = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapAssetValue(rs), params.toArray());
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+            AssetValue last = rows.get(pageSize - 1);
+            nextCursor = TransactionKeyset.encodeCursor(last.getValuationDate(), last.getAssetValueId());
+        }
+        return AssetValuePage.builder()
+                .items(rows)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
     @Override
     @Transactional
     public Asset updateAsset(Long userId, Long assetId, Asset asset) {
@@ -117,6 +222,7 @@ public class AssetServiceUseCase implements AssetServicePort {
                 userId,
                 assetId
         );
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "asset"));
         return getAsset(userId, assetId);
     }
 
@@ -124,19 +230,12 @@ public class AssetServiceUseCase implements AssetServicePort {
     public void deleteAsset(Long userId, Long assetId) {
         String sql = "DELETE FROM assets WHERE user_id = ? AND asset_id = ?";
         jdbcTemplate.update(sql, userId, assetId);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "asset"));
     }
 
     @Override
     @Transactional
     public AssetValue upsertAssetValue(Long userId, Long assetId, LocalDate valuationDate, Double currentValue, Double acquisitionValue) {
-        // Validar que el asset existe y pertenece al usuario (sin cargar valores para evitar overhead)
-        String checkSql = "SELECT asset_id FROM assets WHERE user_id = ? AND asset_id = ?";
-        try {
-            jdbcTemplate.queryForObject(checkSql, Long.class, userId, assetId);
-        } catch (DataAccessException e) {
-            throw new RuntimeException("Asset no encontrado o no pertenece al usuario");
-        }
-
         // Validar que currentValue es positivo
         if (currentValue == null || currentValue <= 0) {
             throw new IllegalArgumentException("currentValue debe ser mayor a 0");
@@ -147,41 +246,86 @@ public class AssetServiceUseCase implements AssetServicePort {
             throw new IllegalArgumentException("acquisitionValue debe ser mayor o igual a 0");
         }
 
-        // Buscar si ya existe una valoración para esta fecha
-        String selectSql = "SELECT value_id FROM asset_values WHERE asset_id = ? AND valuation_date = ?";
-        Long existingValueId = null;
-        try {
-            existingValueId = jdbcTemplate.queryForObject(selectSql, Long.class, assetId, valuationDate);
-        } catch (Exception e) {
-            // No existe, continuar para crear
+        // Comprobación de propiedad, alta o actualización en un solo viaje (uq_asset_values_asset_date)
+        // Nota: acquisitionValue no está en la tabla según el schema, pero lo dejamos preparado
+        List<Long> ids = jdbcTemplate.queryForList(SQL_UPSERT_ASSET_VALUE, Long.class,
+                valuationDate, currentValue, userId, assetId);
+        if (ids.isEmpty()) {
+            throw new RuntimeException("Asset no encontrado o no pertenece al usuario");
         }
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "asset"));
+
+        AssetValue saved = new AssetValue();
+        saved.setAssetValueId(ids.get(0));
+        saved.setAssetId(assetId);
+        saved.setValuationDate(valuationDate);
+        saved.setCurrentValue(currentValue);
+        saved.setAcquisitionValue(acquisitionValue); // Guardado en memoria aunque no en BD
+        return saved;
+    }
 
-        if (existingValueId != null) {
-            // Actualizar existente
-            // Nota: acquisitionValue no está en la tabla según el schema, pero lo dejamos preparado
-            String updateSql = "UPDATE asset_values SET current_value = ? WHERE value_id = ?";
-            jdbcTemplate.update(updateSql, currentValue, existingValueId);
-            
-            AssetValue updated = new AssetValue();
-            updated.setAssetValueId(existingValueId);
-            updated.setAssetId(assetId);
-            updated.setValuationDate(valuationDate);
-            updated.setCurrentValue(currentValue);
-            updated.setAcquisitionValue(acquisitionValue); // Guardado en memoria aunque no en BD
-            return updated;
-        } else {
-            // Insertar nuevo
-            String insertSql = "INSERT INTO asset_values (asset_id, valuation_date, current_value) VALUES (?, ?, ?) RETURNING value_id";
-            Long valueId = jdbcTemplate.queryForObject(insertSql, Long.class, assetId, valuationDate, currentValue);
-            
-            AssetValue created = new AssetValue();
-            created.setAssetValueId(valueId);
-            created.setAssetId(assetId);
-            created.setValuationDate(valuationDate);
-            created.setCurrentValue(currentValue);
-            created.setAcquisitionValue(acquisitionValue); // Guardado en memoria aunque no en BD
-            return created;
+    /**
+     * Alta o actualización masiva de valoraciones de varios activos: una comprobación de propiedad
+     * para todos los activos y un único INSERT ... ON CONFLICT. Si el lote repite activo y fecha,
+     * gana la última. Devuelve una valoración por elemento recibido, en el mismo orden.
+     */
+    @Override
+    @Transactional
+    public List<AssetValue> upsertAssetValues(Long userId, List<CreateAssetValueRequest> values) {
+        if (values == null || values.isEmpty()) {
+            throw new IllegalArgumentException("El lote de valoraciones está vacío");
+        }
+        if (values.size() > MAX_BULK_VALUES) {
+            throw new IllegalArgumentException("El lote admite como máximo " + MAX_BULK_VALUES + " valoraciones");
+        }
+        Map<String, CreateAssetValueRequest> byKey = new LinkedHashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            CreateAssetValueRequest v = values.get(i);
+            if (v == null || v.getAssetId() == null || v.getValuationDate() == null) {
+                throw new IllegalArgumentException("Valoración " + i + ": assetId y valuationDate son obligatorios");
+            }
+            if (v.getCurrentValue() == null || v.getCurrentValue() <= 0) {
+                throw new IllegalArgumentException("Valoración " + i + ": currentValue debe ser mayor a 0");
+            }
+            if (v.getAcquisitionValue() != null && v.getAcquisitionValue() < 0) {
+                throw new IllegalArgumentException("Valoración " + i + ": acquisitionValue debe ser mayor o igual a 0");
+            }
+            String key = v.getAssetId() + "|" + v.getValuationDate();
+            byKey.put(key, v);
         }
+
+        Set<Long> assetIds = new LinkedHashSet<>();
+        List<Long> assetColumn = new ArrayList<>(byKey.size());
+        List<LocalDate> dateColumn = new ArrayList<>(byKey.size());
+        List<Double> valueColumn = new ArrayList<>(byKey.size());
+        for (CreateAssetValueRequest v : byKey.values()) {
+            assetIds.add(v.getAssetId());
+            assetColumn.add(v.getAssetId());
+            dateColumn.add(v.getValuationDate());
+            valueColumn.add(v.getCurrentValue());
+        }
+
+        Set<Long> owned = new HashSet<>(jdbcTemplate.queryForList(SQL_SELECT_OWNED_ASSET_IDS, Long.class,
+                userId, PgArrays.of(assetIds)));
+        assetIds.removeAll(owned);
+        if (!assetIds.isEmpty()) {
+            throw new RuntimeException("Assets no encontrados o no pertenecen al usuario: " + assetIds);
+        }
+
+        Map<String, AssetValue> saved = new HashMap<>();
+        jdbcTemplate.query(SQL_UPSERT_ASSET_VALUES, rs -> {
+            AssetValue av = mapAssetValue(rs);
+            saved.put(av.getAssetId() + "|" + av.getValuationDate(), av);
+        }, PgArrays.of(assetColumn), PgArrays.of(dateColumn), PgArrays.of(valueColumn));
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "asset"));
+
+        List<AssetValue> result = new ArrayList<>(values.size());
+        for (CreateAssetValueRequest v : values) {
+            AssetValue av = saved.get(v.getAssetId() + "|" + v.getValuationDate());
+            av.setAcquisitionValue(byKey.get(v.getAssetId() + "|" + v.getValuationDate()).getAcquisitionValue());
+            result.add(av);
+        }
+        return result;
     }
 
     @Override
@@ -232,6 +376,7 @@ public class AssetServiceUseCase implements AssetServicePort {
         updatedValue.setValuationDate(valuationDate);
         updatedValue.setCurrentValue(currentValue);
         updatedValue.setAcquisitionValue(acquisitionValue);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "asset"));
         return updatedValue;
     }
 
@@ -261,6 +406,7 @@ public class AssetServiceUseCase implements AssetServicePort {
         if (deleted == 0) {
             throw new RuntimeException("No se pudo eliminar la valoración");
         }
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "asset"));
     }
 
     // ===============================
@@ -314,13 +460,15 @@ public class AssetServiceUseCase implements AssetServicePort {
                 "SUM(CASE WHEN transaction_type = 'income' THEN amount ELSE 0 END) AS income, " +
                 "SUM(CASE WHEN transaction_type = 'expense' THEN amount ELSE 0 END) AS expenses " +
                 "FROM transactions " +
-                "WHERE user_id = ? AND related_asset_id = ? AND EXTRACT(YEAR FROM transaction_date) = ? " +
+                "WHERE user_id = ? AND related_asset_id = ? AND transaction_date >= ? AND transaction_date < ? " +
                 "GROUP BY month ORDER BY month";
 
+        // Rango de fechas en lugar de EXTRACT(YEAR ...) para aprovechar índices y particiones
         List<Object> params = new ArrayList<>();
         params.add(userId);
         params.add(assetId);
-        params.add(targetYear);
+        params.add(LocalDate.of(targetYear, 1, 1));
+        params.add(LocalDate.of(targetYear + 1, 1, 1));
 
         // Map de YearMonth -> [income, expenses]
         Map<YearMonth, double[]> monthSums = jdbcTemplate.query(sql, rs -> {
@@ -353,62 +501,181 @@ public class AssetServiceUseCase implements AssetServicePort {
         return result;
     }
 
+    /**
+     * ROI de todos los activos del usuario y de la cartera con dos lecturas: los activos (valor de
+     * adquisición y última valoración) y los totales por activo y mes. La combinación se hace en
+     * memoria. Los totales respetan [startDate, endDate] como calculateAssetROI; las series
+     * mensuales son los 12 meses de {@code year} (año actual por defecto) dentro de ese rango.
+     */
     @Override
-    public AssetDetail getAssetDetail(Long userId, Long assetId) {
-        // Obtener el activo
-        Asset asset;
-        try {
-            asset = getAsset(userId, assetId);
-        } catch (DataAccessException e) {
-            throw new RuntimeException("Activo no encontrado o no pertenece al usuario");
+    public PortfolioROI calculatePortfolioROI(Long userId, LocalDate startDate, LocalDate endDate, Integer year) {
+        if (startDate != null && endDate != null && startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("startDate no puede ser posterior a endDate");
         }
+        int targetYear = (year != null) ? year : LocalDate.now().getYear();
 
-        // Obtener el valor actual (último registrado)
-        String sqlCurrentValue = "SELECT current_value FROM asset_values WHERE asset_id = ? ORDER BY valuation_date DESC LIMIT 1";
-        BigDecimal currentValue = jdbcTemplate.query(sqlCurrentValue, rs -> {
-            if (rs.next()) {
-                return BigDecimal.valueOf(rs.getDouble("current_value"));
+        // asset_id -> [income, expenses] del rango y [mes][income, expenses] del año pedido
+        Map<Long, double[]> totals = new HashMap<>();
+        Map<Long, double[][]> months = new HashMap<>();
+        jdbcTemplate.query(SQL_PORTFOLIO_MONTHLY_TOTALS, rs -> {
+            long assetId = rs.getLong("related_asset_id");
+            double income = rs.getDouble("income");
+            double expenses = rs.getDouble("expenses");
+            double[] t = totals.computeIfAbsent(assetId, k -> new double[2]);
+            t[0] += income;
+            t[1] += expenses;
+            LocalDate month = rs.getObject("month", LocalDate.class);
+            if (month.getYear() == targetYear) {
+                double[] m = months.computeIfAbsent(assetId, k -> new double[12][2])[month.getMonthValue() - 1];
+                m[0] += income;
+                m[1] += expenses;
+            }
+        }, userId, startDate, endDate);
+
+        double totalInvested = 0, totalCurrentValue = 0, totalIncome = 0, totalExpenses = 0;
+        double[][] portfolioMonths = new double[12][2];
+        List<PortfolioAssetROI> assets = jdbcTemplate.query(SQL_PORTFOLIO_ASSETS, (rs, rowNum) -> PortfolioAssetROI.builder()
+                .assetId(rs.getLong("asset_id"))
+                .name(rs.getString("name"))
+                .acquisitionValue(rs.getObject("acquisition_value") != null ? rs.getDouble("acquisition_value") : null)
+                .currentValue(rs.getObject("current_value") != null ? rs.getDouble("current_value") : null)
+                .currentValueDate(rs.getObject("current_value_date", LocalDate.class))
+                .build(), userId);
+        for (PortfolioAssetROI asset : assets) {
+            double invested = asset.getAcquisitionValue() != null ? asset.getAcquisitionValue() : 0.0;
+            double[] t = totals.getOrDefault(asset.getAssetId(), new double[2]);
+            double netProfit = t[0] - t[1];
+            asset.setTotalIncome(t[0]);
+            asset.setTotalExpenses(t[1]);
+            asset.setNetProfit(netProfit);
+            asset.setRoiPercentage(invested != 0 ? (netProfit / invested) * 100 : 0.0);
+            asset.setValueChange(asset.getCurrentValue() != null ? asset.getCurrentValue() - invested : null);
+
+            double[][] m = months.getOrDefault(asset.getAssetId(), new double[12][2]);
+            asset.setMonthly(monthlySeries(targetYear, m, invested));
+            for (int i = 0; i < 12; i++) {
+                portfolioMonths[i][0] += m[i][0];
+                portfolioMonths[i][1] += m[i][1];
             }
-            return BigDecimal.ZERO;
-        }, assetId);
-
-        // Calcular ingresos y gastos del activo (related_asset_id)
-        String sqlIncome = "SELECT COALESCE(SUM(amount), 0) FROM transactions WHERE user_id = ? AND related_asset_id = ? AND transaction_type = 'income'";
-        String sqlExpense = "SELECT COALESCE(SUM(amount), 0) FROM transactions WHERE user_id = ? AND related_asset_id = ? AND transaction_type = 'expense'";
-        
-        BigDecimal totalIncome = jdbcTemplate.queryForObject(sqlIncome, BigDecimal.class, userId, assetId);
-        BigDecimal totalExpenses = jdbcTemplate.queryForObject(sqlExpense, BigDecimal.class, userId, assetId);
-        BigDecimal netProfit = totalIncome.subtract(totalExpenses);
-
-        // Calcular ROI
-        double invested = asset.getAcquisitionValue() != null ? asset.getAcquisitionValue() : 0.0;
-        double roiPercentage = invested != 0 ? (netProfit.doubleValue() / invested) * 100 : 0.0;
-
-        // Contar transacciones
-        String sqlCount = "SELECT COUNT(*) FROM transactions WHERE user_id = ? AND related_asset_id = ?";
-        Integer transactionCount = jdbcTemplate.queryForObject(sqlCount, Integer.class, userId, assetId);
-
-        // Obtener TODAS las transacciones (sin límite)
-        String sqlRecent = "SELECT * FROM transactions WHERE user_id = ? AND related_asset_id = ? ORDER BY transaction_date DESC, transaction_id DESC";
-        List<Transaction> recentTransactions = jdbcTemplate.query(sqlRecent, (rs, rowNum) -> mapTransaction(rs), userId, assetId);
 
-        // Obtener TODO el historial de valores (sin límite de tiempo)
-        String sqlValueHistory = "SELECT * FROM asset_values WHERE asset_id = ? ORDER BY valuation_date DESC";
-        List<AssetValue> valueHistory = jdbcTemplate.query(sqlValueHistory, (rs, rowNum) -> mapAssetValue(rs), assetId);
+            totalInvested += invested;
+            totalCurrentValue += asset.getCurrentValue() != null ? asset.getCurrentValue() : 0.0;
+            totalIncome += t[0];
+            totalExpenses += t[1];
+        }
 
-        return AssetDetail.builder()
-                .asset(asset)
-                .currentValue(currentValue)
+        double netProfit = totalIncome - totalExpenses;
+        return PortfolioROI.builder()
+                .year(targetYear)
+                .totalInvested(totalInvested)
+                .totalCurrentValue(totalCurrentValue)
                 .totalIncome(totalIncome)
                 .totalExpenses(totalExpenses)
                 .netProfit(netProfit)
-                .roiPercentage(roiPercentage)
-                .transactionCount(transactionCount)
-                .recentTransactions(recentTransactions)
-                .valueHistory(valueHistory)
+                .roiPercentage(totalInvested != 0 ? (netProfit / totalInvested) * 100 : 0.0)
+                .monthly(monthlySeries(targetYear, portfolioMonths, totalInvested))
+                .assets(assets)
                 .build();
     }
 
+    /**
+     * XIRR y TWR de todos los activos y de la cartera (ver AssetReturnsCache).
+     */
+    @Override
+    public PortfolioReturns getPortfolioReturns(Long userId) {
+        return returnsCache.get(userId);
+    }
+
+    /**
+     * XIRR y TWR de un activo, sacado del cálculo en bloque de la cartera; null si no es del usuario.
+     */
+    @Override
+    public AssetReturns getAssetReturns(Long userId, Long assetId) {
+        for (AssetReturns returns : returnsCache.get(userId).getAssets()) {
+            if (assetId.equals(returns.getAssetId())) return returns;
+        }
+        return null;
+    }
+
+    private static List<MonthlyROI> monthlySeries(int year, double[][] sums, double invested) {
+        List<MonthlyROI> result = new ArrayList<>(12);
+        for (int m = 1; m <= 12; m++) {
+            double income = sums[m - 1][0];
+            double expenses = sums[m - 1][1];
+            double netProfit = income - expenses;
+            double roi = invested != 0 ? (netProfit / invested) * 100 : 0.0;
+            result.add(new MonthlyROI(YearMonth.of(year, m).toString(), income, expenses, netProfit, roi));
+        }
+        return result;
+    }
+
+    @Override
+    public AssetDetail getAssetDetail(Long userId, Long assetId) {
+        return getAssetDetail(userId, assetId, null, null);
+    }
+
+    /**
+     * Detalle de activo: el activo, su último valor y los agregados de sus transacciones en una
+     * sola consulta, la última página de valoraciones y una página (keyset) de transacciones recientes.
+     */
+    @Override
+    public AssetDetail getAssetDetail(Long userId, Long assetId, String cursor, Integer limit) {
+        int pageSize = TransactionKeyset.pageSize(limit, TransactionKeyset.DETAIL_PAGE_SIZE, TransactionKeyset.MAX_DETAIL_PAGE_SIZE);
+
+        // Ingresos y gastos del activo (related_asset_id); el último valor es la proyección de assets
+        String sqlDetail = "SELECT a.*, agg.total_income, agg.total_expenses, agg.transaction_count, a.current_value AS latest_value " +
+                "FROM assets a " +
+                "CROSS JOIN LATERAL ( " +
+                "  SELECT COALESCE(SUM(t.amount) FILTER (WHERE t.transaction_type = 'income'), 0) AS total_income, " +
+                "         COALESCE(SUM(t.amount) FILTER (WHERE t.transaction_type = 'expense'), 0) AS total_expenses, " +
+                "         COUNT(*) AS transaction_count " +
+                "  FROM transactions t WHERE t.user_id = a.user_id AND t.related_asset_id = a.asset_id " +
+                ") agg " +
+                "WHERE a.user_id = ? AND a.asset_id = ?";
+
+        // Obtener el activo
+        AssetDetail detail;
+        try {
+            detail = jdbcTemplate.queryForObject(sqlDetail, (rs, rowNum) -> {
+                Asset asset = mapRow(rs);
+                BigDecimal totalIncome = rs.getBigDecimal("total_income");
+                BigDecimal totalExpenses = rs.getBigDecimal("total_expenses");
+                BigDecimal netProfit = totalIncome.subtract(totalExpenses);
+                double latestValue = rs.getDouble("latest_value");
+                BigDecimal currentValue = rs.wasNull() ? BigDecimal.ZERO : BigDecimal.valueOf(latestValue);
+
+                // Calcular ROI
+                double invested = asset.getAcquisitionValue() != null ? asset.getAcquisitionValue() : 0.0;
+                double roiPercentage = invested != 0 ? (netProfit.doubleValue() / invested) * 100 : 0.0;
+
+                return AssetDetail.builder()
+                        .asset(asset)
+                        .currentValue(currentValue)
+                        .totalIncome(totalIncome)
+                        .totalExpenses(totalExpenses)
+                        .netProfit(netProfit)
+                        .roiPercentage(roiPercentage)
+                        .transactionCount(rs.getInt("transaction_count"))
+                        .build();
+            }, userId, assetId);
+        } catch (DataAccessException e) {
+            throw new RuntimeException("Activo no encontrado o no pertenece al usuario");
+        }
+
+        // Solo la última página de valoraciones; las anteriores se piden a /valuations con el cursor
+        AssetValuePage values = listAssetValues(userId, assetId, null, ValuationWindow.DEFAULT_PAGE_SIZE);
+        detail.setValueHistory(values.getItems());
+        detail.setValueHistoryNextCursor(values.getNextCursor());
+
+        // Transacciones recientes paginadas
+        StringBuilder sqlRecent = new StringBuilder("SELECT * FROM transactions WHERE user_id = ? AND related_asset_id = ?");
+        List<Object> params = new ArrayList<>(List.of(userId, assetId));
+        TransactionPage page = TransactionKeyset.fetchPage(jdbcTemplate, sqlRecent, params, cursor, pageSize, (rs, rowNum) -> mapTransaction(rs));
+        detail.setRecentTransactions(page.getItems());
+        detail.setNextCursor(page.getNextCursor());
+        return detail;
+    }
+
     @Override
     public Asset getPrimaryAsset(Long userId) {
         String sql = "SELECT * FROM assets WHERE user_id = ? AND is_primary = TRUE LIMIT 1";
@@ -445,6 +712,7 @@ public class AssetServiceUseCase implements AssetServicePort {
         // Marcar el activo especificado como principal
         String setPrimarySql = "UPDATE assets SET is_primary = TRUE, updated_at = NOW() WHERE user_id = ? AND asset_id = ?";
         jdbcTemplate.update(setPrimarySql, userId, assetId);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "asset"));
 
         // Retornar el activo actualizado
         return getAsset(userId, assetId);
@@ -480,6 +748,8 @@ public class AssetServiceUseCase implements AssetServicePort {
         asset.setAcquisitionValue(rs.getDouble("acquisition_value"));
         asset.setOwnershipPercentage(rs.getDouble("ownership_percentage"));
         asset.setIsPrimary(rs.getBoolean("is_primary"));
+        asset.setCurrentValue(rs.getObject("current_value") != null ? rs.getDouble("current_value") : null);
+        asset.setCurrentValueDate(rs.getDate("current_value_date") != null ? rs.getDate("current_value_date").toLocalDate() : null);
         return asset;
     }
     private AssetValue mapAssetValue(java.sql.ResultSet rs) throws java.sql.SQLException {
@@ -0,0 +1,174 @@
+package com.cuentas.backend.application.services;
+
+import com.cuentas.backend.application.ports.driven.NotificationSenderPort;
+import com.cuentas.backend.domain.BudgetAlert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Alertas de umbral de presupuesto (80 % y 100 % del importe).
+ * <p>
+ * La evaluación se hace en el camino de escritura, justo después de actualizar los
+ * contadores de budget_consumption, y solo para los presupuestos de las categorías
+ * afectadas en su periodo actual. Las alertas se guardan en budget_alert_outbox y
+ * un proceso programado las envía por lotes respetando user_settings.notifications_email.
+ */
+@Service
+public class BudgetAlertService {
+
+    private static final Logger log = LoggerFactory.getLogger(BudgetAlertService.class);
+
+    private static final String SQL_EVALUATE =
+            "INSERT INTO budget_alert_outbox (user_id, budget_id, category_id, period_start, threshold, spent, budget_amount) " +
+                    "SELECT b.user_id, b.budget_id, b.category_id, bc.period_start, th.threshold, bc.spent, b.amount " +
+                    "FROM budgets b " +
+                    "JOIN budget_consumption bc ON bc.budget_id = b.budget_id " +
+                    "CROSS JOIN (VALUES (80), (100)) AS th(threshold) " +
+                    "WHERE b.user_id = ? " +
+                    "AND bc.period_start = (CASE WHEN b.period = 'monthly' THEN date_trunc('month', ?::date) ELSE date_trunc('year', ?::date) END)::date " +
+                    "AND (b.end_date IS NULL OR b.end_date >= ?) " +
+                    "AND (b.start_date IS NULL OR b.start_date <= ?) " +
+                    "AND bc.spent * 100 >= b.amount * th.threshold ";
+
+    private static final String SQL_EVALUATE_CATEGORY =
+            SQL_EVALUATE + "AND b.category_id = ? " +
+                    "ON CONFLICT (budget_id, period_start, threshold) DO NOTHING";
+
+    private static final String SQL_EVALUATE_ALL =
+            SQL_EVALUATE + "ON CONFLICT (budget_id, period_start, threshold) DO NOTHING";
+
+    private static final String SQL_LOCK_PENDING =
+            "SELECT o.alert_id, o.user_id, o.budget_id, o.category_id, o.period_start, o.threshold, o.spent, o.budget_amount, " +
+                    "o.attempts, u.name AS user_name, u.email, c.name AS category_name, b.period, " +
+                    "COALESCE((SELECT us.notifications_email FROM user_settings us WHERE us.user_id = o.user_id " +
+                    "ORDER BY us.setting_id DESC LIMIT 1), TRUE) AS notifications_email " +
+                    "FROM budget_alert_outbox o " +
+                    "JOIN users u ON u.user_id = o.user_id " +
+                    "JOIN budgets b ON b.budget_id = o.budget_id " +
+                    "LEFT JOIN categories c ON c.category_id = o.category_id " +
+                    "WHERE o.status = 'pending' " +
+                    "ORDER BY o.alert_id " +
+                    "LIMIT ? " +
+                    "FOR UPDATE OF o SKIP LOCKED";
+
+    private static final String SQL_MARK_PROCESSED =
+            "UPDATE budget_alert_outbox SET status = ?, attempts = attempts + 1, processed_at = NOW() WHERE alert_id = ?";
+
+    private static final String SQL_MARK_RETRY =
+            "UPDATE budget_alert_outbox SET attempts = attempts + 1 WHERE alert_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationSenderPort notificationSender;
+    private final int batchSize;
+    private final int maxAttempts;
+
+    public BudgetAlertService(JdbcTemplate jdbcTemplate,
+                              NotificationSenderPort notificationSender,
+                              @Value("${alerts.budget.batch-size:100}") int batchSize,
+                              @Value("${alerts.budget.max-attempts:5}") int maxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.notificationSender = notificationSender;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Comprueba los umbrales de los presupuestos de las categorías indicadas en su periodo actual.
+     * Debe llamarse dentro de la transacción que ha actualizado budget_consumption.
+     */
+    public void evaluate(Long userId, Collection<Long> categoryIds) {
+        if (categoryIds.isEmpty()) return;
+        LocalDate today = LocalDate.now();
+        List<Object[]> batchArgs = new ArrayList<>(categoryIds.size());
+        for (Long categoryId : categoryIds) {
+            batchArgs.add(new Object[]{userId, today, today, today, today, categoryId});
+        }
+        int[] inserted = jdbcTemplate.batchUpdate(SQL_EVALUATE_CATEGORY, batchArgs);
+        logCreated(userId, inserted);
+    }
+
+    /**
+     * Comprueba los umbrales de todos los presupuestos del usuario (tras recalcular sus contadores).
+     */
+    public void evaluateAll(Long userId) {
+        LocalDate today = LocalDate.now();
+        int inserted = jdbcTemplate.update(SQL_EVALUATE_ALL, userId, today, today, today, today);
+        logCreated(userId, new int[]{inserted});
+    }
+
+    /**
+     * Envía un lote de alertas pendientes. SKIP LOCKED permite varias instancias en paralelo
+     * sin enviar dos veces la misma alerta.
+     */
+    @Scheduled(fixedDelayString = "${alerts.budget.drain-delay-ms:30000}")
+    @Transactional
+    public void drainOutbox() {
+        List<PendingAlert> pending = jdbcTemplate.query(SQL_LOCK_PENDING, (rs, rowNum) -> new PendingAlert(
+                BudgetAlert.builder()
+                        .alertId(rs.getLong("alert_id"))
+                        .userId(rs.getLong("user_id"))
+                        .userName(rs.getString("user_name"))
+                        .email(rs.getString("email"))
+                        .budgetId(rs.getLong("budget_id"))
+                        .categoryId(rs.getLong("category_id"))
+                        .categoryName(rs.getString("category_name"))
+                        .period(rs.getString("period"))
+                        .periodStart(rs.getDate("period_start").toLocalDate())
+                        .threshold(rs.getInt("threshold"))
+                        .spent(rs.getBigDecimal("spent"))
+                        .budgetAmount(rs.getBigDecimal("budget_amount"))
+                        .build(),
+                rs.getBoolean("notifications_email"),
+                rs.getInt("attempts")), batchSize);
+        if (pending.isEmpty()) return;
+
+        int sent = 0;
+        int skipped = 0;
+        int failed = 0;
+        for (PendingAlert p : pending) {
+            Long alertId = p.alert().getAlertId();
+            if (!p.notificationsEmail()) {
+                jdbcTemplate.update(SQL_MARK_PROCESSED, "skipped", alertId);
+                skipped++;
+                continue;
+            }
+            try {
+                notificationSender.sendBudgetAlert(p.alert());
+                jdbcTemplate.update(SQL_MARK_PROCESSED, "sent", alertId);
+                sent++;
+            } catch (RuntimeException e) {
+                log.warn("Error enviando alerta de presupuesto {} (intento {}): {}", alertId, p.attempts() + 1, e.getMessage());
+                if (p.attempts() + 1 >= maxAttempts) {
+                    jdbcTemplate.update(SQL_MARK_PROCESSED, "failed", alertId);
+                } else {
+                    jdbcTemplate.update(SQL_MARK_RETRY, alertId);
+                }
+                failed++;
+            }
+        }
+        log.info("Alertas de presupuesto procesadas: {} enviadas, {} omitidas por preferencias, {} con error", sent, skipped, failed);
+    }
+
+    private void logCreated(Long userId, int[] inserted) {
+        int total = 0;
+        for (int n : inserted) {
+            total += Math.max(n, 0);
+        }
+        if (total > 0) {
+            log.info("Nuevas alertas de presupuesto para user={}: {}", userId, total);
+        }
+    }
+
+    private record PendingAlert(BudgetAlert alert, boolean notificationsEmail, int attempts) {
+    }
+}
@@ -0,0 +1,151 @@
+package com.cuentas.backend.application.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mantiene los contadores budget_consumption (gasto de cada presupuesto en su periodo actual).
+ * <p>
+ * Las escrituras de transacciones suman o restan su importe a los contadores del periodo
+ * afectado; los contadores de un periodo anterior se recalculan desde user_daily_totals
+ * la primera vez que se leen en el periodo nuevo (reinicio perezoso).
+ * Todas las operaciones deben ejecutarse dentro de la transacción que modifica el rollup.
+ */
+@Service
+public class BudgetConsumptionService {
+
+    private static final Logger log = LoggerFactory.getLogger(BudgetConsumptionService.class);
+
+    private static final String PERIOD_START =
+            "(CASE WHEN b.period = 'monthly' THEN date_trunc('month', ?::date) ELSE date_trunc('year', ?::date) END)::date";
+
+    // Gasto del periodo calculado desde el rollup diario, por presupuesto
+    private static final String SQL_COMPUTE_FROM_ROLLUP =
+            "INSERT INTO budget_consumption (budget_id, period_start, spent, updated_at) " +
+                    "SELECT b.budget_id, p.period_start, COALESCE(SUM(d.total_amount), 0), NOW() " +
+                    "FROM budgets b " +
+                    "CROSS JOIN LATERAL (SELECT " + PERIOD_START + " AS period_start) p " +
+                    "LEFT JOIN user_daily_totals d ON d.user_id = b.user_id " +
+                    "AND d.category_id = b.category_id " +
+                    "AND d.transaction_type = 'expense' " +
+                    "AND d.day >= p.period_start " +
+                    "AND d.day < p.period_start + CASE WHEN b.period = 'monthly' THEN INTERVAL '1 month' ELSE INTERVAL '1 year' END " +
+                    "WHERE b.user_id = ? ";
+
+    private static final String SQL_REFRESH_STALE =
+            SQL_COMPUTE_FROM_ROLLUP +
+                    "AND NOT EXISTS (SELECT 1 FROM budget_consumption bc WHERE bc.budget_id = b.budget_id AND bc.period_start = p.period_start) " +
+                    "GROUP BY b.budget_id, p.period_start " +
+                    // Si otra transacción acaba de crear el contador del periodo actual, se respeta el suyo
+                    "ON CONFLICT (budget_id) DO UPDATE SET period_start = EXCLUDED.period_start, spent = EXCLUDED.spent, updated_at = NOW() " +
+                    "WHERE budget_consumption.period_start <> EXCLUDED.period_start";
+
+    private static final String SQL_REFRESH_ALL =
+            SQL_COMPUTE_FROM_ROLLUP +
+                    "GROUP BY b.budget_id, p.period_start " +
+                    "ON CONFLICT (budget_id) DO UPDATE SET period_start = EXCLUDED.period_start, spent = EXCLUDED.spent, updated_at = NOW()";
+
+    private static final String SQL_APPLY_DELTA =
+            "UPDATE budget_consumption bc SET spent = bc.spent + ?, updated_at = NOW() " +
+                    "FROM budgets b " +
+                    "WHERE bc.budget_id = b.budget_id AND b.user_id = ? AND b.category_id = ? " +
+                    "AND bc.period_start = " + PERIOD_START;
+
+    // Presupuestos de la categoría sin contador del periodo actual: se crea desde el rollup
+    // (que ya incluye el delta). Si otra transacción lo crea a la vez, se le suma el delta.
+    private static final String SQL_CREATE_MISSING =
+            SQL_COMPUTE_FROM_ROLLUP +
+                    "AND b.category_id = ? " +
+                    "AND p.period_start = " + PERIOD_START + " " +
+                    "AND NOT EXISTS (SELECT 1 FROM budget_consumption bc WHERE bc.budget_id = b.budget_id AND bc.period_start = p.period_start) " +
+                    "GROUP BY b.budget_id, p.period_start " +
+                    "ON CONFLICT (budget_id) DO UPDATE SET " +
+                    "spent = CASE WHEN budget_consumption.period_start = EXCLUDED.period_start " +
+                    "THEN budget_consumption.spent + ? ELSE EXCLUDED.spent END, " +
+                    "period_start = EXCLUDED.period_start, updated_at = NOW()";
+
+    private static final String SQL_DELETE_BUDGET =
+            "DELETE FROM budget_consumption WHERE budget_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BudgetAlertService budgetAlertService;
+
+    public BudgetConsumptionService(JdbcTemplate jdbcTemplate, BudgetAlertService budgetAlertService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.budgetAlertService = budgetAlertService;
+    }
+
+    /**
+     * Aplica deltas de gasto agrupados por (categoría, primer día del mes).
+     * Los meses fuera del año en curso no pueden afectar a ningún periodo actual y se ignoran.
+     */
+    public void applyExpenseDeltas(Long userId, Map<MonthKey, BigDecimal> deltas) {
+        LocalDate today = LocalDate.now();
+        LocalDate yearStart = today.withDayOfYear(1);
+        LocalDate nextYearStart = yearStart.plusYears(1);
+
+        List<Object[]> updateArgs = new ArrayList<>();
+        List<Object[]> createArgs = new ArrayList<>();
+        Set<Long> increasedCategories = new LinkedHashSet<>();
+        for (Map.Entry<MonthKey, BigDecimal> e : deltas.entrySet()) {
+            MonthKey k = e.getKey();
+            if (k.categoryId() == null || e.getValue().signum() == 0) continue;
+            if (k.month().isBefore(yearStart) || !k.month().isBefore(nextYearStart)) continue;
+            updateArgs.add(new Object[]{e.getValue(), userId, k.categoryId(), k.month(), k.month()});
+            createArgs.add(new Object[]{today, today, userId, k.categoryId(), k.month(), k.month(), e.getValue()});
+            if (e.getValue().signum() > 0) {
+                increasedCategories.add(k.categoryId());
+            }
+        }
+        if (updateArgs.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(SQL_APPLY_DELTA, updateArgs);
+        jdbcTemplate.batchUpdate(SQL_CREATE_MISSING, createArgs);
+        // Solo un aumento del gasto puede cruzar un umbral
+        budgetAlertService.evaluate(userId, increasedCategories);
+    }
+
+    /**
+     * Recalcula desde el rollup los contadores del usuario cuyo periodo ya no es el actual
+     * (o que aún no existen). Tras la primera lectura del periodo no escribe nada.
+     */
+    public void refreshStale(Long userId) {
+        LocalDate today = LocalDate.now();
+        int refreshed = jdbcTemplate.update(SQL_REFRESH_STALE, today, today, userId);
+        if (refreshed > 0) {
+            log.info("Contadores de presupuesto reiniciados para user={}: {}", userId, refreshed);
+        }
+    }
+
+    /**
+     * Recalcula todos los contadores del usuario. Usado cuando el rollup se reconstruye
+     * (importadores) o se mueve de categoría, donde no hay deltas por transacción.
+     */
+    public void refreshAll(Long userId) {
+        LocalDate today = LocalDate.now();
+        int refreshed = jdbcTemplate.update(SQL_REFRESH_ALL, today, today, userId);
+        log.info("Contadores de presupuesto recalculados para user={}: {}", userId, refreshed);
+        budgetAlertService.evaluateAll(userId);
+    }
+
+    /**
+     * Descarta el contador de un presupuesto (p. ej. al cambiar su categoría o periodo);
+     * se recalcula en la siguiente lectura.
+     */
+    public void reset(Long budgetId) {
+        jdbcTemplate.update(SQL_DELETE_BUDGET, budgetId);
+    }
+
+    public record MonthKey(Long categoryId, LocalDate month) {
+    }
+}
@@ -1,11 +1,14 @@
 package com.cuentas.backend.application.services;
 
+import com.cuentas.backend.application.events.UserDataChangedEvent;
 import com.cuentas.backend.application.ports.driving.BudgetServicePort;
 import com.cuentas.backend.domain.Budget;
+import com.cuentas.backend.domain.BudgetHistory;
 import com.cuentas.backend.domain.BudgetStatus;
-import org.springframework.dao.DataAccessException;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -13,16 +16,59 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 @Service
 public class BudgetServiceUseCase implements BudgetServicePort {
 
+    /**
+     * Serie histórica presupuesto vs. gasto real en una sola consulta:
+     * los periodos de cada presupuesto salen de generate_series, el gasto de un único
+     * recorrido del rollup diario agrupado por periodo, y los acumulados y la variación
+     * respecto al periodo anterior de funciones ventana.
+     */
+    private static final String SQL_HISTORY =
+            "WITH bud AS ( " +
+                    "  SELECT b.budget_id, b.category_id, c.name AS category_name, b.amount, b.period, " +
+                    "         CASE WHEN b.period = 'monthly' THEN 'month' ELSE 'year' END AS unit, " +
+                    "         CASE WHEN b.period = 'monthly' THEN INTERVAL '1 month' ELSE INTERVAL '1 year' END AS step, " +
+                    "         date_trunc(CASE WHEN b.period = 'monthly' THEN 'month' ELSE 'year' END, " +
+                    "                    COALESCE(b.start_date, b.created_at::date))::date AS first_period, " +
+                    "         LEAST(COALESCE(b.end_date, ?::date), ?::date) AS last_day " +
+                    "  FROM budgets b " +
+                    "  JOIN categories c ON b.category_id = c.category_id " +
+                    "  WHERE b.user_id = ? AND (?::int IS NULL OR b.budget_id = ?) " +
+                    "), periods AS ( " +
+                    "  SELECT bud.*, gs::date AS period_start, (gs + bud.step)::date AS period_end " +
+                    "  FROM bud CROSS JOIN LATERAL generate_series(bud.first_period, bud.last_day, bud.step) AS gs " +
+                    "), spent AS ( " +
+                    "  SELECT bud.budget_id, date_trunc(bud.unit, d.day)::date AS period_start, SUM(d.total_amount) AS spent " +
+                    "  FROM bud " +
+                    "  JOIN user_daily_totals d ON d.user_id = ? AND d.category_id = bud.category_id " +
+                    "   AND d.transaction_type = 'expense' AND d.day >= bud.first_period AND d.day <= bud.last_day " +
+                    "  GROUP BY bud.budget_id, date_trunc(bud.unit, d.day) " +
+                    ") " +
+                    "SELECT p.budget_id, p.category_id, p.category_name, p.amount, p.period, p.period_start, p.period_end, " +
+                    "       COALESCE(s.spent, 0) AS spent, " +
+                    "       SUM(p.amount) OVER w AS cumulative_budget, " +
+                    "       SUM(COALESCE(s.spent, 0)) OVER w AS cumulative_spent, " +
+                    "       COALESCE(s.spent, 0) - LAG(COALESCE(s.spent, 0)) OVER (PARTITION BY p.budget_id ORDER BY p.period_start) AS change_from_previous " +
+                    "FROM periods p " +
+                    "LEFT JOIN spent s ON s.budget_id = p.budget_id AND s.period_start = p.period_start " +
+                    "WINDOW w AS (PARTITION BY p.budget_id ORDER BY p.period_start ROWS UNBOUNDED PRECEDING) " +
+                    "ORDER BY p.category_name, p.budget_id, p.period_start";
+
     private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BudgetConsumptionService budgetConsumptionService;
 
-    public BudgetServiceUseCase(JdbcTemplate jdbcTemplate) {
+    public BudgetServiceUseCase(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher,
+                                BudgetConsumptionService budgetConsumptionService) {
         this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.budgetConsumptionService = budgetConsumptionService;
     }
 
     @Override
@@ -37,6 +83,7 @@ public class BudgetServiceUseCase implements BudgetServicePort {
                 budget.getEndDate());
         budget.setBudgetId(id);
         budget.setUserId(userId);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "budget"));
         return budget;
     }
 
@@ -53,6 +100,7 @@ public class BudgetServiceUseCase implements BudgetServicePort {
     }
 
     @Override
+    @Transactional
     public Budget updateBudget(Long userId, Long budgetId, Budget budget) {
         String sql = "UPDATE budgets SET category_id = ?, amount = ?, period = ?, start_date = ?, end_date = ?, updated_at = NOW() WHERE user_id = ? AND budget_id = ?";
         jdbcTemplate.update(sql,
@@ -63,6 +111,9 @@ public class BudgetServiceUseCase implements BudgetServicePort {
                 budget.getEndDate(),
                 userId,
                 budgetId);
+        // La categoría o el periodo pueden haber cambiado: el contador se recalcula al leer
+        budgetConsumptionService.reset(budgetId);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "budget"));
         return getBudget(userId, budgetId);
     }
 
@@ -70,60 +121,57 @@ public class BudgetServiceUseCase implements BudgetServicePort {
     public void deleteBudget(Long userId, Long budgetId) {
         String sql = "DELETE FROM budgets WHERE user_id = ? AND budget_id = ?";
         jdbcTemplate.update(sql, userId, budgetId);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "budget"));
     }
 
     @Override
+    @Transactional
     public BudgetStatus getBudgetStatus(Long userId) {
         LocalDate now = LocalDate.now();
-        
-        // Obtener presupuestos activos (que no han expirado o no tienen fecha de fin)
-        String sqlBudgets = "SELECT b.budget_id, b.category_id, c.name AS category_name, b.amount, b.period, b.start_date, b.end_date " +
+
+        // Reinicio perezoso de los contadores que aún son de un periodo anterior
+        budgetConsumptionService.refreshStale(userId);
+
+        // Presupuestos activos (que no han expirado o no tienen fecha de fin) con su contador de gasto
+        String sql = "SELECT b.budget_id, b.category_id, c.name AS category_name, b.amount, b.period, " +
+                "COALESCE(bc.spent, 0) AS spent " +
                 "FROM budgets b " +
                 "JOIN categories c ON b.category_id = c.category_id " +
+                "LEFT JOIN budget_consumption bc ON bc.budget_id = b.budget_id " +
                 "WHERE b.user_id = ? " +
                 "AND (b.end_date IS NULL OR b.end_date >= ?) " +
                 "AND (b.start_date IS NULL OR b.start_date <= ?) " +
                 "ORDER BY c.name";
-        
-        List<Map<String, Object>> budgets = jdbcTemplate.queryForList(sqlBudgets, userId, now, now);
-        
-        List<BudgetStatus.BudgetStatusItem> items = new ArrayList<>();
-        BigDecimal totalBudget = BigDecimal.ZERO;
-        BigDecimal totalSpent = BigDecimal.ZERO;
-        
-        for (Map<String, Object> budgetRow : budgets) {
-            Long budgetId = ((Number) budgetRow.get("budget_id")).longValue();
-            Long categoryId = ((Number) budgetRow.get("category_id")).longValue();
-            String categoryName = (String) budgetRow.get("category_name");
-            BigDecimal budgetAmount = (BigDecimal) budgetRow.get("amount");
-            String period = (String) budgetRow.get("period");
-            
-            // Calcular gastos según el periodo
-            BigDecimal spent = calculateSpent(userId, categoryId, period, now);
-            BigDecimal remaining = budgetAmount.subtract(spent);
+
+        List<BudgetStatus.BudgetStatusItem> items = jdbcTemplate.query(sql, (rs, rowNum) -> {
+            BigDecimal budgetAmount = rs.getBigDecimal("amount");
+            BigDecimal spent = rs.getBigDecimal("spent");
             Double percentageUsed = budgetAmount.compareTo(BigDecimal.ZERO) > 0
                     ? spent.divide(budgetAmount, 4, RoundingMode.HALF_UP)
                             .multiply(BigDecimal.valueOf(100))
                             .doubleValue()
                     : 0.0;
-            
-            items.add(BudgetStatus.BudgetStatusItem.builder()
-                    .budgetId(budgetId)
-                    .categoryId(categoryId)
-                    .categoryName(categoryName)
+            return BudgetStatus.BudgetStatusItem.builder()
+                    .budgetId(rs.getLong("budget_id"))
+                    .categoryId(rs.getLong("category_id"))
+                    .categoryName(rs.getString("category_name"))
                     .budgetAmount(budgetAmount)
                     .spent(spent)
-                    .remaining(remaining)
+                    .remaining(budgetAmount.subtract(spent))
                     .percentageUsed(percentageUsed)
-                    .period(period)
-                    .build());
-            
-            totalBudget = totalBudget.add(budgetAmount);
-            totalSpent = totalSpent.add(spent);
+                    .period(rs.getString("period"))
+                    .build();
+        }, userId, now, now);
+
+        BigDecimal totalBudget = BigDecimal.ZERO;
+        BigDecimal totalSpent = BigDecimal.ZERO;
+        for (BudgetStatus.BudgetStatusItem item : items) {
+            totalBudget = totalBudget.add(item.getBudgetAmount());
+            totalSpent = totalSpent.add(item.getSpent());
         }
-        
+
         BigDecimal totalRemaining = totalBudget.subtract(totalSpent);
-        
+
         return BudgetStatus.builder()
                 .items(items)
                 .totalBudget(totalBudget)
@@ -131,29 +179,43 @@ public class BudgetServiceUseCase implements BudgetServicePort {
                 .totalRemaining(totalRemaining)
                 .build();
     }
-    
-    private BigDecimal calculateSpent(Long userId, Long categoryId, String period, LocalDate now) {
-        String sql;
-        LocalDate startDate;
-        
-        if ("monthly".equals(period)) {
-            startDate = now.withDayOfMonth(1);
-            sql = "SELECT COALESCE(SUM(amount), 0) FROM transactions " +
-                    "WHERE user_id = ? AND category_id = ? AND transaction_type = 'expense' " +
-                    "AND transaction_date >= ? AND transaction_date <= ?";
-        } else { // yearly
-            startDate = now.withDayOfYear(1);
-            sql = "SELECT COALESCE(SUM(amount), 0) FROM transactions " +
-                    "WHERE user_id = ? AND category_id = ? AND transaction_type = 'expense' " +
-                    "AND transaction_date >= ? AND transaction_date <= ?";
-        }
-        
-        try {
-            BigDecimal result = jdbcTemplate.queryForObject(sql, BigDecimal.class, userId, categoryId, startDate, now);
-            return result != null ? result : BigDecimal.ZERO;
-        } catch (DataAccessException e) {
-            return BigDecimal.ZERO;
-        }
+
+    @Override
+    public List<BudgetHistory> getBudgetHistory(Long userId, Long budgetId) {
+        LocalDate now = LocalDate.now();
+        Map<Long, BudgetHistory> histories = new LinkedHashMap<>();
+        jdbcTemplate.query(SQL_HISTORY, rs -> {
+            Long id = rs.getLong("budget_id");
+            BigDecimal budgetAmount = rs.getBigDecimal("amount");
+            BudgetHistory history = histories.get(id);
+            if (history == null) {
+                history = BudgetHistory.builder()
+                        .budgetId(id)
+                        .categoryId(rs.getLong("category_id"))
+                        .categoryName(rs.getString("category_name"))
+                        .period(rs.getString("period"))
+                        .budgetAmount(budgetAmount)
+                        .points(new ArrayList<>())
+                        .build();
+                histories.put(id, history);
+            }
+            BigDecimal spent = rs.getBigDecimal("spent");
+            history.getPoints().add(BudgetHistory.BudgetHistoryPoint.builder()
+                    .periodStart(rs.getDate("period_start").toLocalDate())
+                    .periodEnd(rs.getDate("period_end").toLocalDate().minusDays(1))
+                    .spent(spent)
+                    .remaining(budgetAmount.subtract(spent))
+                    .percentageUsed(budgetAmount.compareTo(BigDecimal.ZERO) > 0
+                            ? spent.divide(budgetAmount, 4, RoundingMode.HALF_UP)
+                                    .multiply(BigDecimal.valueOf(100))
+                                    .doubleValue()
+                            : 0.0)
+                    .cumulativeBudget(rs.getBigDecimal("cumulative_budget"))
+                    .cumulativeSpent(rs.getBigDecimal("cumulative_spent"))
+                    .changeFromPrevious(rs.getBigDecimal("change_from_previous"))
+                    .build());
+        }, now, now, userId, budgetId, budgetId, userId);
+        return new ArrayList<>(histories.values());
     }
 
     private Budget mapRow(ResultSet rs) throws SQLException {
@@ -0,0 +1,24 @@
+package com.cuentas.backend.application.services;
+
+import com.cuentas.backend.application.ports.driving.CacheStatsServicePort;
+import com.cuentas.backend.domain.CacheStats;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public class CacheStatsServiceUseCase implements CacheStatsServicePort {
+
+    private final DashboardCache dashboardCache;
+    private final SpendingIndex spendingIndex;
+
+    public CacheStatsServiceUseCase(DashboardCache dashboardCache, SpendingIndex spendingIndex) {
+        this.dashboardCache = dashboardCache;
+        this.spendingIndex = spendingIndex;
+    }
+
+    @Override
+    public List<CacheStats> getCacheStats() {
+        return List.of(dashboardCache.getStats(), spendingIndex.getStats());
+    }
+}
@@ -0,0 +1,321 @@
+package com.cuentas.backend.application.services;
+
+import com.cuentas.backend.application.events.UserDataChangedEvent;
+import com.cuentas.backend.application.ports.driving.CategoryMergeServicePort;
+import com.cuentas.backend.domain.CategoryMergeJob;
+import com.cuentas.backend.domain.CategoryMergeRequest;
+import com.cuentas.backend.domain.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Reasignación masiva de transacciones de varias categorías origen a una categoría destino.
+ * <p>
+ * El trabajo se registra en category_merge_jobs y se ejecuta en segundo plano: las
+ * transacciones se mueven por lotes de tamaño fijo, cada uno en su propia transacción
+ * corta con FOR UPDATE SKIP LOCKED, de modo que las escrituras concurrentes del usuario
+ * no quedan bloqueadas tras una única sentencia sobre todo su histórico. En el mismo
+ * lote se ajustan el rollup diario (y con él presupuestos e índice de gasto) y el
+ * progreso del trabajo. Al terminar, opcionalmente se eliminan las categorías origen
+ * reasignando sus subcategorías al destino.
+ */
+@Service
+public class CategoryMergeServiceUseCase implements CategoryMergeServicePort {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryMergeServiceUseCase.class);
+
+    private static final int MAX_SOURCE_CATEGORIES = 100;
+
+    private static final String SQL_COUNT_OWNED_CATEGORIES =
+            "SELECT COUNT(*) FROM categories WHERE user_id = ? AND category_id = ANY(?::int[])";
+
+    private static final String SQL_COUNT_TRANSACTIONS =
+            "SELECT COUNT(*) FROM transactions WHERE user_id = ? AND category_id = ANY(?::int[])";
+
+    private static final String SQL_INSERT_JOB =
+            "INSERT INTO category_merge_jobs (user_id, source_category_ids, target_category_id, delete_sources, total_transactions) " +
+                    "VALUES (?, ?::int[], ?, ?, ?) RETURNING job_id";
+
+    private static final String SQL_SELECT_JOB =
+            "SELECT * FROM category_merge_jobs WHERE job_id = ?";
+
+    private static final String SQL_SELECT_USER_JOB =
+            "SELECT * FROM category_merge_jobs WHERE user_id = ? AND job_id = ?";
+
+    private static final String SQL_SELECT_UNFINISHED =
+            "SELECT job_id FROM category_merge_jobs WHERE status IN ('pending', 'running') ORDER BY job_id";
+
+    private static final String SQL_MARK_RUNNING =
+            "UPDATE category_merge_jobs SET status = 'running', started_at = COALESCE(started_at, NOW()), updated_at = NOW() " +
+                    "WHERE job_id = ?";
+
+    private static final String SQL_ADD_PROGRESS =
+            "UPDATE category_merge_jobs SET moved_transactions = moved_transactions + ?, updated_at = NOW() WHERE job_id = ?";
+
+    private static final String SQL_MARK_COMPLETED =
+            "UPDATE category_merge_jobs SET status = 'completed', error = NULL, finished_at = NOW(), updated_at = NOW() " +
+                    "WHERE job_id = ?";
+
+    private static final String SQL_MARK_FAILED =
+            "UPDATE category_merge_jobs SET status = 'failed', error = ?, finished_at = NOW(), updated_at = NOW() " +
+                    "WHERE job_id = ?";
+
+    private static final String SQL_MOVE =
+            "WITH batch AS (" +
+                    "SELECT transaction_id, transaction_date, category_id FROM transactions " +
+                    "WHERE user_id = ? AND category_id = ANY(?::int[]) " +
+                    "ORDER BY transaction_id LIMIT ? %s) " +
+                    "UPDATE transactions t SET category_id = ?, updated_at = NOW() " +
+                    "FROM batch b " +
+                    "WHERE t.transaction_id = b.transaction_id AND t.transaction_date = b.transaction_date " +
+                    "RETURNING b.category_id AS old_category_id, t.transaction_date, t.transaction_type, t.amount";
+
+    // Las filas bloqueadas por otra escritura se saltan y se recogen en un lote posterior
+    private static final String SQL_MOVE_BATCH = String.format(SQL_MOVE, "FOR UPDATE SKIP LOCKED");
+
+    // Pasada final, con las categorías origen bloqueadas: espera a las filas bloqueadas en vez de saltarlas
+    private static final String SQL_MOVE_BATCH_WAIT = String.format(SQL_MOVE, "FOR UPDATE");
+
+    // Bloquea las categorías origen: las altas o cambios que las referencian (FOR KEY SHARE de la FK)
+    // esperan a que termine la fusión, y ninguna transacción queda con category_id NULL por el borrado
+    private static final String SQL_LOCK_SOURCES =
+            "SELECT category_id FROM categories WHERE user_id = ? AND category_id = ANY(?::int[]) FOR UPDATE";
+
+    private static final String SQL_HAS_REMAINING =
+            "SELECT EXISTS (SELECT 1 FROM transactions WHERE user_id = ? AND category_id = ANY(?::int[]))";
+
+    private static final String SQL_REPARENT_CHILDREN =
+            "UPDATE categories SET parent_category_id = ?, updated_at = NOW() " +
+                    "WHERE user_id = ? AND parent_category_id = ANY(?::int[]) AND category_id <> ? " +
+                    "AND NOT (category_id = ANY(?::int[]))";
+
+    private static final String SQL_DELETE_SOURCES =
+            "DELETE FROM categories WHERE user_id = ? AND category_id = ANY(?::int[])";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor taskExecutor;
+    private final UserDailyTotalsService userDailyTotalsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final long retryPauseMs;
+    private final int maxEmptyBatches;
+    private final AtomicBoolean resumed = new AtomicBoolean();
+
+    public CategoryMergeServiceUseCase(JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                       UserDailyTotalsService userDailyTotalsService,
+                                       ApplicationEventPublisher eventPublisher,
+                                       @Value("${category-merge.batch-size:500}") int batchSize,
+                                       @Value("${category-merge.retry-pause-ms:200}") long retryPauseMs,
+                                       @Value("${category-merge.max-empty-batches:50}") int maxEmptyBatches) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.taskExecutor = taskExecutor;
+        this.userDailyTotalsService = userDailyTotalsService;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.retryPauseMs = retryPauseMs;
+        this.maxEmptyBatches = maxEmptyBatches;
+    }
+
+    @Override
+    public CategoryMergeJob startMerge(Long userId, CategoryMergeRequest request) {
+        if (request == null || request.getTargetCategoryId() == null) {
+            throw new IllegalArgumentException("targetCategoryId es obligatorio");
+        }
+        if (request.getSourceCategoryIds() == null || request.getSourceCategoryIds().isEmpty()) {
+            throw new IllegalArgumentException("sourceCategoryIds es obligatorio");
+        }
+        Long targetId = request.getTargetCategoryId();
+        Set<Long> sources = new LinkedHashSet<>();
+        for (Long id : request.getSourceCategoryIds()) {
+            if (id == null) throw new IllegalArgumentException("sourceCategoryIds contiene valores nulos");
+            if (id.equals(targetId)) throw new IllegalArgumentException("La categoría destino no puede ser también origen");
+            sources.add(id);
+        }
+        if (sources.size() > MAX_SOURCE_CATEGORIES) {
+            throw new IllegalArgumentException("Como máximo " + MAX_SOURCE_CATEGORIES + " categorías origen");
+        }
+
+        List<Long> all = new ArrayList<>(sources);
+        all.add(targetId);
+        Integer owned = jdbcTemplate.queryForObject(SQL_COUNT_OWNED_CATEGORIES, Integer.class, userId, PgArrays.of(all));
+        if (owned == null || owned != all.size()) {
+            throw new IllegalArgumentException("Alguna categoría no existe o no pertenece al usuario");
+        }
+
+        String sourceArray = PgArrays.of(sources);
+        Integer total = jdbcTemplate.queryForObject(SQL_COUNT_TRANSACTIONS, Integer.class, userId, sourceArray);
+        boolean deleteSources = Boolean.TRUE.equals(request.getDeleteSources());
+        Long jobId = jdbcTemplate.queryForObject(SQL_INSERT_JOB, Long.class,
+                userId, sourceArray, targetId, deleteSources, total != null ? total : 0);
+
+        log.info("Fusión de categorías encolada: job={}, user={}, origen={}, destino={}, transacciones={}",
+                jobId, userId, sources, targetId, total);
+        submit(jobId);
+        return jdbcTemplate.queryForObject(SQL_SELECT_JOB, this::mapJob, jobId);
+    }
+
+    @Override
+    public CategoryMergeJob getMergeJob(Long userId, Long jobId) {
+        List<CategoryMergeJob> jobs = jdbcTemplate.query(SQL_SELECT_USER_JOB, this::mapJob, userId, jobId);
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    /**
+     * Reanuda los trabajos que quedaron pendientes o a medias por un reinicio.
+     * Cada lote es independiente, así que basta con seguir moviendo lo que quede.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    public void resumeUnfinishedJobs() {
+        if (!resumed.compareAndSet(false, true)) return;
+        List<Long> jobIds = jdbcTemplate.queryForList(SQL_SELECT_UNFINISHED, Long.class);
+        if (!jobIds.isEmpty()) {
+            log.info("Reanudando {} fusiones de categorías sin terminar", jobIds.size());
+            jobIds.forEach(this::submit);
+        }
+    }
+
+    private void submit(Long jobId) {
+        taskExecutor.execute(() -> run(jobId));
+    }
+
+    private void run(Long jobId) {
+        CategoryMergeJob job = jdbcTemplate.queryForObject(SQL_SELECT_JOB, this::mapJob, jobId);
+        if (job == null) return;
+        Long userId = job.getUserId();
+        Long targetId = job.getTargetCategoryId();
+        String sourceArray = PgArrays.of(job.getSourceCategoryIds());
+        long started = System.currentTimeMillis();
+
+        try {
+            jdbcTemplate.update(SQL_MARK_RUNNING, jobId);
+
+            int emptyBatches = 0;
+            while (true) {
+                Integer moved = transactionTemplate.execute(status -> moveBatch(SQL_MOVE_BATCH, jobId, userId, sourceArray, targetId));
+                if (moved != null && moved > 0) {
+                    emptyBatches = 0;
+                    continue;
+                }
+                Boolean remaining = jdbcTemplate.queryForObject(SQL_HAS_REMAINING, Boolean.class, userId, sourceArray);
+                if (!Boolean.TRUE.equals(remaining)) break;
+                // Solo quedan filas bloqueadas por otras escrituras: esperar y reintentar
+                if (++emptyBatches > maxEmptyBatches) {
+                    throw new IllegalStateException("Transacciones bloqueadas durante demasiado tiempo");
+                }
+                Thread.sleep(retryPauseMs);
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                if (Boolean.TRUE.equals(job.getDeleteSources())) {
+                    // Lo que haya entrado en las categorías origen desde el último lote se mueve aquí,
+                    // con el rollup ajustado, antes de que ON DELETE SET NULL lo deje sin categoría
+                    jdbcTemplate.queryForList(SQL_LOCK_SOURCES, Long.class, userId, sourceArray);
+                    int late = 0;
+                    for (int moved; (moved = moveBatch(SQL_MOVE_BATCH_WAIT, jobId, userId, sourceArray, targetId)) > 0; ) {
+                        late += moved;
+                    }
+                    if (late > 0) {
+                        log.info("Fusión job={}: {} transacciones añadidas tras el último lote movidas antes del borrado", jobId, late);
+                    }
+                    jdbcTemplate.update(SQL_REPARENT_CHILDREN, targetId, userId, sourceArray, targetId, sourceArray);
+                    int deleted = jdbcTemplate.update(SQL_DELETE_SOURCES, userId, sourceArray);
+                    log.info("Fusión job={}: {} categorías origen eliminadas", jobId, deleted);
+                }
+                jdbcTemplate.update(SQL_MARK_COMPLETED, jobId);
+                eventPublisher.publishEvent(new UserDataChangedEvent(userId, "category"));
+            });
+            log.info("Fusión de categorías completada: job={}, user={} en {} ms",
+                    jobId, userId, System.currentTimeMillis() - started);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Fusión de categorías interrumpida: job={}", jobId);
+        } catch (RuntimeException e) {
+            log.error("Error en la fusión de categorías job={}: {}", jobId, e.getMessage(), e);
+            jdbcTemplate.update(SQL_MARK_FAILED, e.getMessage(), jobId);
+        }
+    }
+
+    /**
+     * Mueve un lote y, en la misma transacción, ajusta el rollup y el progreso del trabajo.
+     */
+    private int moveBatch(String sql, Long jobId, Long userId, String sourceArray, Long targetId) {
+        List<Transaction> before = new ArrayList<>();
+        List<Transaction> after = new ArrayList<>();
+        jdbcTemplate.query(sql, (ResultSet rs) -> {
+            Transaction old = new Transaction();
+            old.setCategoryId(rs.getLong("old_category_id"));
+            old.setTransactionDate(rs.getDate("transaction_date").toLocalDate());
+            old.setType(rs.getString("transaction_type"));
+            old.setAmount(rs.getDouble("amount"));
+            before.add(old);
+
+            Transaction moved = new Transaction();
+            moved.setCategoryId(targetId);
+            moved.setTransactionDate(old.getTransactionDate());
+            moved.setType(old.getType());
+            moved.setAmount(old.getAmount());
+            after.add(moved);
+        }, userId, sourceArray, batchSize, targetId);
+
+        if (before.isEmpty()) return 0;
+
+        userDailyTotalsService.subtractAll(userId, before);
+        userDailyTotalsService.addAll(userId, after);
+        jdbcTemplate.update(SQL_ADD_PROGRESS, before.size(), jobId);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "transaction"));
+        log.debug("Fusión job={}: lote de {} transacciones movido", jobId, before.size());
+        return before.size();
+    }
+
+    private CategoryMergeJob mapJob(ResultSet rs, int rowNum) throws SQLException {
+        Array array = rs.getArray("source_category_ids");
+        List<Long> sources = array == null ? List.of() : Arrays.stream((Integer[]) array.getArray())
+                .map(Integer::longValue)
+                .collect(Collectors.toList());
+        int total = rs.getInt("total_transactions");
+        int moved = rs.getInt("moved_transactions");
+        String status = rs.getString("status");
+        double progress = "completed".equals(status) || total == 0 ? 100.0
+                : Math.min(100.0, Math.round(moved * 10000.0 / total) / 100.0);
+        return CategoryMergeJob.builder()
+                .jobId(rs.getLong("job_id"))
+                .userId(rs.getLong("user_id"))
+                .sourceCategoryIds(sources)
+                .targetCategoryId(rs.getLong("target_category_id"))
+                .deleteSources(rs.getBoolean("delete_sources"))
+                .status(status)
+                .totalTransactions(total)
+                .movedTransactions(moved)
+                .progressPercentage(progress)
+                .error(rs.getString("error"))
+                .createdAt(rs.getTimestamp("created_at") != null ? rs.getTimestamp("created_at").toLocalDateTime() : null)
+                .startedAt(rs.getTimestamp("started_at") != null ? rs.getTimestamp("started_at").toLocalDateTime() : null)
+                .finishedAt(rs.getTimestamp("finished_at") != null ? rs.getTimestamp("finished_at").toLocalDateTime() : null)
+                .build();
+    }
+}
@@ -0,0 +1,180 @@
+package com.cuentas.backend.application.services;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Trie inmutable de nombres de categoría de un usuario, sin distinguir mayúsculas ni acentos.
+ * <p>
+ * Cada nombre se indexa completo y también a partir de cada palabra ("Ocio - Cine" aparece
+ * al buscar "ci"), de modo que el autocompletado devuelve primero las categorías cuyo nombre
+ * empieza por el prefijo y después las que lo contienen al inicio de una palabra. Dentro de
+ * cada grupo, los nombres más cortos van antes y a igual longitud en orden alfabético.
+ */
+public final class CategoryNameTrie {
+
+    private final Node root;
+    private final long[] categoryIds;
+    private final String[] names;
+
+    private CategoryNameTrie(Node root, long[] categoryIds, String[] names) {
+        this.root = root;
+        this.categoryIds = categoryIds;
+        this.names = names;
+    }
+
+    /**
+     * Construye el trie a partir de (id, nombre). Los nombres nulos o vacíos se ignoran.
+     */
+    public static CategoryNameTrie build(Map<Long, String> namesById) {
+        Builder root = new Builder();
+        long[] ids = new long[namesById.size()];
+        String[] names = new String[namesById.size()];
+        int index = 0;
+        for (Map.Entry<Long, String> e : namesById.entrySet()) {
+            String normalized = normalize(e.getValue());
+            if (normalized.isEmpty()) continue;
+            ids[index] = e.getKey();
+            names[index] = e.getValue();
+            root.insert(normalized, 0, index, true);
+            for (int i = 1; i < normalized.length(); i++) {
+                if (normalized.charAt(i - 1) == ' ' && normalized.charAt(i) != ' ') {
+                    root.insert(normalized, i, index, false);
+                }
+            }
+            index++;
+        }
+        return new CategoryNameTrie(root.freeze(), Arrays.copyOf(ids, index), Arrays.copyOf(names, index));
+    }
+
+    /**
+     * Ids de las categorías que casan con el prefijo, como máximo {@code limit}.
+     */
+    public List<Long> complete(String prefix, int limit) {
+        Node node = find(normalize(prefix));
+        if (node == null || limit <= 0) return List.of();
+        Set<Integer> matches = new LinkedHashSet<>();
+        collect(node, true, matches, limit);
+        if (matches.size() < limit) {
+            collect(node, false, matches, limit);
+        }
+        List<Long> result = new ArrayList<>(matches.size());
+        for (int index : matches) result.add(categoryIds[index]);
+        return result;
+    }
+
+    /**
+     * Id de la categoría con ese nombre: primero la coincidencia exacta; si no la hay, la única
+     * que coincide sin distinguir mayúsculas ni acentos. Null si no existe o es ambigua.
+     */
+    public Long resolve(String name) {
+        Node node = find(normalize(name));
+        if (node == null || node.fullNames.length == 0) return null;
+        for (int index : node.fullNames) {
+            if (names[index].equals(name)) return categoryIds[index];
+        }
+        return node.fullNames.length == 1 ? categoryIds[node.fullNames[0]] : null;
+    }
+
+    /**
+     * Minúsculas, sin acentos (NFD sin marcas diacríticas) y con los espacios colapsados.
+     */
+    static String normalize(String value) {
+        if (value == null) return "";
+        String decomposed = Normalizer.normalize(value.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char ch = decomposed.charAt(i);
+            if (Character.getType(ch) == Character.NON_SPACING_MARK) continue;
+            if (Character.isWhitespace(ch)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(ch);
+        }
+        return sb.toString();
+    }
+
+    private Node find(String key) {
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        return node;
+    }
+
+    // Recorrido en anchura: los nombres más cortos primero; los hijos están ordenados por carácter
+    private static void collect(Node start, boolean fullNames, Set<Integer> matches, int limit) {
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            for (int index : fullNames ? node.fullNames : node.wordStarts) {
+                matches.add(index);
+                if (matches.size() >= limit) return;
+            }
+            queue.addAll(Arrays.asList(node.children));
+        }
+    }
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private final char[] labels;
+        private final Node[] children;
+        private final int[] fullNames;
+        private final int[] wordStarts;
+
+        private Node(char[] labels, Node[] children, int[] fullNames, int[] wordStarts) {
+            this.labels = labels;
+            this.children = children;
+            this.fullNames = fullNames;
+            this.wordStarts = wordStarts;
+        }
+
+        Node child(char ch) {
+            int i = Arrays.binarySearch(labels, ch);
+            return i >= 0 ? children[i] : null;
+        }
+    }
+
+    private static final class Builder {
+        private final TreeMap<Character, Builder> children = new TreeMap<>();
+        private final List<Integer> fullNames = new ArrayList<>(1);
+        private final List<Integer> wordStarts = new ArrayList<>(1);
+
+        void insert(String key, int from, int index, boolean fullName) {
+            Builder node = this;
+            for (int i = from; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), k -> new Builder());
+            }
+            (fullName ? node.fullNames : node.wordStarts).add(index);
+        }
+
+        Node freeze() {
+            char[] labels = new char[children.size()];
+            Node[] frozen = children.isEmpty() ? Node.NO_CHILDREN : new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Builder> e : children.entrySet()) {
+                labels[i] = e.getKey();
+                frozen[i++] = e.getValue().freeze();
+            }
+            return new Node(labels, frozen,
+                    fullNames.stream().mapToInt(Integer::intValue).toArray(),
+                    wordStarts.stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+}
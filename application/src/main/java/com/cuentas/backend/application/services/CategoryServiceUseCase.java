@@ -1,26 +1,46 @@
 package com.cuentas.backend.application.services;
 
+import com.cuentas.backend.application.events.UserDataChangedEvent;
 import com.cuentas.backend.application.ports.driving.CategoryServicePort;
 import com.cuentas.backend.domain.Category;
 import com.cuentas.backend.domain.CategoryDetail;
+import com.cuentas.backend.domain.CategoryTreeNode;
 import com.cuentas.backend.domain.Transaction;
+import com.cuentas.backend.domain.TransactionPage;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class CategoryServiceUseCase implements CategoryServicePort {
 
+    private static final int DEFAULT_AUTOCOMPLETE_SIZE = 10;
+    private static final int MAX_AUTOCOMPLETE_SIZE = 50;
+    private static final int MAX_AUTOCOMPLETE_PREFIX = 100;
+
     private final JdbcTemplate jdbcTemplate;
+    private final UserDailyTotalsService dailyTotalsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CategoryTreeCache categoryTreeCache;
 
-    public CategoryServiceUseCase(JdbcTemplate jdbcTemplate) {
+    public CategoryServiceUseCase(JdbcTemplate jdbcTemplate, UserDailyTotalsService dailyTotalsService,
+                                  ApplicationEventPublisher eventPublisher, CategoryTreeCache categoryTreeCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.dailyTotalsService = dailyTotalsService;
+        this.eventPublisher = eventPublisher;
+        this.categoryTreeCache = categoryTreeCache;
     }
 
     @Override
@@ -29,6 +49,7 @@ public class CategoryServiceUseCase implements CategoryServicePort {
         Long id = jdbcTemplate.queryForObject(sql, Long.class, userId, category.getName(), category.getDescription(), category.getParentCategoryId());
         category.setCategoryId(id);
         category.setUserId(userId);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "category"));
         return category;
     }
 
@@ -44,10 +65,31 @@ public class CategoryServiceUseCase implements CategoryServicePort {
         return jdbcTemplate.query(sql, (rs, rowNum) -> mapRow(rs), userId);
     }
 
+    /**
+     * Autocompletado de nombres desde el trie cacheado (sin distinguir mayúsculas ni acentos).
+     */
+    @Override
+    public List<Category> autocompleteCategories(Long userId, String prefix, Integer limit) {
+        if (prefix != null && prefix.length() > MAX_AUTOCOMPLETE_PREFIX) {
+            throw new IllegalArgumentException("q admite como máximo " + MAX_AUTOCOMPLETE_PREFIX + " caracteres");
+        }
+        int size = limit == null ? DEFAULT_AUTOCOMPLETE_SIZE : limit;
+        if (size < 1 || size > MAX_AUTOCOMPLETE_SIZE) {
+            throw new IllegalArgumentException("limit debe estar entre 1 y " + MAX_AUTOCOMPLETE_SIZE);
+        }
+        CategoryTreeCache.CategoryTree tree = categoryTreeCache.get(userId);
+        List<Category> result = new ArrayList<>();
+        for (Long id : tree.names().complete(prefix, size)) {
+            result.add(copyOf(tree.category(id)));
+        }
+        return result;
+    }
+
     @Override
     public Category updateCategory(Long userId, Long categoryId, Category category) {
         String sql = "UPDATE categories SET name = ?, description = ?, parent_category_id = ?, updated_at = NOW() WHERE user_id = ? AND category_id = ?";
         jdbcTemplate.update(sql, category.getName(), category.getDescription(), category.getParentCategoryId(), userId, categoryId);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "category"));
         return getCategory(userId, categoryId);
     }
 
@@ -64,9 +106,11 @@ public class CategoryServiceUseCase implements CategoryServicePort {
         
         String sql = "DELETE FROM categories WHERE user_id = ? AND category_id = ?";
         jdbcTemplate.update(sql, userId, categoryId);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "category"));
     }
 
     @Override
+    @Transactional
     public void reassignTransactions(Long userId, Long fromCategoryId, Long toCategoryId) {
         // Validar que ambas categorías existen y pertenecen al usuario
         try {
@@ -83,6 +127,9 @@ public class CategoryServiceUseCase implements CategoryServicePort {
         if (rowsAffected == 0) {
             throw new RuntimeException("No hay transacciones para reasignar");
         }
+
+        dailyTotalsService.moveCategory(userId, fromCategoryId, toCategoryId);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "category"));
     }
 
     @Override
@@ -93,44 +140,150 @@ public class CategoryServiceUseCase implements CategoryServicePort {
 
     @Override
     public CategoryDetail getCategoryDetail(Long userId, Long categoryId) {
+        return getCategoryDetail(userId, categoryId, null, null);
+    }
+
+    /**
+     * Detalle de categoría: la categoría y todos sus agregados en una sola consulta sobre el
+     * rollup diario, subcategorías desde la caché del árbol y una página (keyset) de transacciones.
+     */
+    @Override
+    public CategoryDetail getCategoryDetail(Long userId, Long categoryId, String cursor, Integer limit) {
+        int pageSize = TransactionKeyset.pageSize(limit, TransactionKeyset.DETAIL_PAGE_SIZE, TransactionKeyset.MAX_DETAIL_PAGE_SIZE);
+
+        String sqlDetail = "SELECT c.*, agg.total_income, agg.total_expenses, agg.transaction_count " +
+                "FROM categories c " +
+                "CROSS JOIN LATERAL ( " +
+                "  SELECT COALESCE(SUM(d.total_amount) FILTER (WHERE d.transaction_type = 'income'), 0) AS total_income, " +
+                "         COALESCE(SUM(d.total_amount) FILTER (WHERE d.transaction_type = 'expense'), 0) AS total_expenses, " +
+                "         COALESCE(SUM(d.transaction_count), 0) AS transaction_count " +
+                "  FROM user_daily_totals d WHERE d.user_id = c.user_id AND d.category_id = c.category_id " +
+                ") agg " +
+                "WHERE c.user_id = ? AND c.category_id = ?";
+
         // Validar que la categoría existe y pertenece al usuario
-        Category category;
+        CategoryDetail detail;
         try {
-            category = getCategory(userId, categoryId);
+            detail = jdbcTemplate.queryForObject(sqlDetail, (rs, rowNum) -> {
+                BigDecimal totalIncome = rs.getBigDecimal("total_income");
+                BigDecimal totalExpenses = rs.getBigDecimal("total_expenses");
+                return CategoryDetail.builder()
+                        .category(mapRow(rs))
+                        .totalIncome(totalIncome)
+                        .totalExpenses(totalExpenses)
+                        .netBalance(totalIncome.subtract(totalExpenses))
+                        .transactionCount(rs.getInt("transaction_count"))
+                        .build();
+            }, userId, categoryId);
         } catch (DataAccessException e) {
             throw new RuntimeException("Categoría no encontrada o no pertenece al usuario");
         }
 
-        // Obtener subcategorías
-        List<Category> subcategories = getSubcategories(userId, categoryId);
+        // Subcategorías desde la caché del árbol (ordenadas por nombre)
+        CategoryTreeCache.CategoryTree tree = categoryTreeCache.get(userId);
+        List<Category> subcategories;
+        if (tree.contains(categoryId)) {
+            subcategories = new ArrayList<>();
+            for (Long childId : tree.children(categoryId)) {
+                subcategories.add(copyOf(tree.category(childId)));
+            }
+        } else {
+            subcategories = getSubcategories(userId, categoryId);
+        }
+        detail.setSubcategories(subcategories);
 
-        // Calcular totales de ingresos y gastos
-        String sqlIncome = "SELECT COALESCE(SUM(amount), 0) FROM transactions WHERE user_id = ? AND category_id = ? AND transaction_type = 'income'";
-        String sqlExpense = "SELECT COALESCE(SUM(amount), 0) FROM transactions WHERE user_id = ? AND category_id = ? AND transaction_type = 'expense'";
-        
-        BigDecimal totalIncome = jdbcTemplate.queryForObject(sqlIncome, BigDecimal.class, userId, categoryId);
-        BigDecimal totalExpenses = jdbcTemplate.queryForObject(sqlExpense, BigDecimal.class, userId, categoryId);
-        BigDecimal netBalance = totalIncome.subtract(totalExpenses);
+        // Transacciones recientes paginadas
+        StringBuilder sqlRecent = new StringBuilder("SELECT * FROM transactions WHERE user_id = ? AND category_id = ?");
+        List<Object> params = new ArrayList<>(List.of(userId, categoryId));
+        TransactionPage page = TransactionKeyset.fetchPage(jdbcTemplate, sqlRecent, params, cursor, pageSize, (rs, rowNum) -> mapTransaction(rs));
+        detail.setRecentTransactions(page.getItems());
+        detail.setNextCursor(page.getNextCursor());
+        return detail;
+    }
 
-        // Contar transacciones
-        String sqlCount = "SELECT COUNT(*) FROM transactions WHERE user_id = ? AND category_id = ?";
-        Integer transactionCount = jdbcTemplate.queryForObject(sqlCount, Integer.class, userId, categoryId);
+    /**
+     * Árbol de categorías (completo o desde rootCategoryId) con totales propios y acumulados
+     * por subárbol. La estructura sale de la caché y los importes de una única consulta
+     * agrupada por categoría sobre el rollup diario; la acumulación se hace en memoria.
+     */
+    @Override
+    public List<CategoryTreeNode> getCategoryTree(Long userId, Long rootCategoryId, LocalDate startDate, LocalDate endDate) {
+        CategoryTreeCache.CategoryTree tree = categoryTreeCache.get(userId);
+        if (rootCategoryId != null && !tree.contains(rootCategoryId)) {
+            throw new IllegalArgumentException("Categoría no encontrada o no pertenece al usuario");
+        }
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT category_id, " +
+                "COALESCE(SUM(total_amount) FILTER (WHERE transaction_type = 'income'), 0) AS income, " +
+                "COALESCE(SUM(total_amount) FILTER (WHERE transaction_type = 'expense'), 0) AS expenses, " +
+                "COALESCE(SUM(transaction_count), 0) AS transaction_count " +
+                "FROM user_daily_totals WHERE user_id = ? AND category_id IS NOT NULL");
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        if (startDate != null) {
+            sql.append(" AND day >= ?");
+            params.add(startDate);
+        }
+        if (endDate != null) {
+            sql.append(" AND day <= ?");
+            params.add(endDate);
+        }
+        sql.append(" GROUP BY category_id");
+
+        Map<Long, Object[]> totals = new HashMap<>();
+        jdbcTemplate.query(sql.toString(), rs -> {
+            totals.put(rs.getLong("category_id"), new Object[]{
+                    rs.getBigDecimal("income"), rs.getBigDecimal("expenses"), rs.getInt("transaction_count")});
+        }, params.toArray());
 
-        // Obtener TODAS las transacciones (sin límite)
-        String sqlRecent = "SELECT * FROM transactions WHERE user_id = ? AND category_id = ? ORDER BY transaction_date DESC, transaction_id DESC";
-        List<Transaction> recentTransactions = jdbcTemplate.query(sqlRecent, (rs, rowNum) -> mapTransaction(rs), userId, categoryId);
-
-        return CategoryDetail.builder()
-                .category(category)
-                .subcategories(subcategories)
-                .totalIncome(totalIncome)
-                .totalExpenses(totalExpenses)
-                .netBalance(netBalance)
-                .transactionCount(transactionCount)
-                .recentTransactions(recentTransactions)
+        List<Long> roots = rootCategoryId != null ? List.of(rootCategoryId) : tree.roots();
+        List<CategoryTreeNode> result = new ArrayList<>(roots.size());
+        for (Long rootId : roots) {
+            result.add(buildNode(tree, rootId, totals));
+        }
+        return result;
+    }
+
+    private CategoryTreeNode buildNode(CategoryTreeCache.CategoryTree tree, Long categoryId, Map<Long, Object[]> totals) {
+        Object[] own = totals.getOrDefault(categoryId, new Object[]{BigDecimal.ZERO, BigDecimal.ZERO, 0});
+        BigDecimal income = (BigDecimal) own[0];
+        BigDecimal expenses = (BigDecimal) own[1];
+        int count = (Integer) own[2];
+
+        BigDecimal subtreeIncome = income;
+        BigDecimal subtreeExpenses = expenses;
+        int subtreeCount = count;
+        List<Long> childIds = tree.children(categoryId);
+        List<CategoryTreeNode> children = new ArrayList<>(childIds.size());
+        for (Long childId : childIds) {
+            CategoryTreeNode child = buildNode(tree, childId, totals);
+            subtreeIncome = subtreeIncome.add(child.getSubtreeIncome());
+            subtreeExpenses = subtreeExpenses.add(child.getSubtreeExpenses());
+            subtreeCount += child.getSubtreeTransactionCount();
+            children.add(child);
+        }
+
+        return CategoryTreeNode.builder()
+                .category(copyOf(tree.category(categoryId)))
+                .depth(tree.depth(categoryId))
+                .totalIncome(income)
+                .totalExpenses(expenses)
+                .transactionCount(count)
+                .subtreeIncome(subtreeIncome)
+                .subtreeExpenses(subtreeExpenses)
+                .subtreeNetBalance(subtreeIncome.subtract(subtreeExpenses))
+                .subtreeTransactionCount(subtreeCount)
+                .children(children)
                 .build();
     }
 
+    // Copia: las categorías de la caché no deben salir como objetos mutables compartidos
+    private Category copyOf(Category cached) {
+        return new Category(cached.getCategoryId(), cached.getUserId(), cached.getName(), cached.getDescription(),
+                cached.getParentCategoryId(), cached.getCreatedAt(), cached.getUpdatedAt());
+    }
+
     private Transaction mapTransaction(ResultSet rs) throws SQLException {
         Transaction t = new Transaction();
         t.setTransactionId(rs.getLong("transaction_id"));
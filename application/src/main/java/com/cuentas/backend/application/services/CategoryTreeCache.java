@@ -0,0 +1,143 @@
+package com.cuentas.backend.application.services;
+
+import com.cuentas.backend.application.events.UserDataChangedEvent;
+import com.cuentas.backend.domain.Category;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Árbol de categorías de cada usuario, cargado con una única consulta recursiva y
+ * cacheado en memoria junto con el trie de nombres (autocompletado e importadores).
+ * Se invalida tras el commit de cualquier escritura de categorías (incluidas las que
+ * hacen los importadores).
+ */
+@Service
+public class CategoryTreeCache {
+
+    private static final Set<String> INVALIDATING_ENTITIES = Set.of("category", "import");
+
+    // Raíces: sin padre o con un padre que no es del usuario. path evita bucles si los datos tuvieran ciclos.
+    private static final String SQL_TREE =
+            "WITH RECURSIVE tree AS ( " +
+                    "  SELECT c.*, 0 AS depth, ARRAY[c.category_id] AS path " +
+                    "  FROM categories c " +
+                    "  WHERE c.user_id = ? AND (c.parent_category_id IS NULL OR NOT EXISTS ( " +
+                    "    SELECT 1 FROM categories p WHERE p.category_id = c.parent_category_id AND p.user_id = c.user_id)) " +
+                    "  UNION ALL " +
+                    "  SELECT c.*, t.depth + 1, t.path || c.category_id " +
+                    "  FROM categories c " +
+                    "  JOIN tree t ON c.parent_category_id = t.category_id " +
+                    "  WHERE c.user_id = ? AND NOT c.category_id = ANY(t.path) " +
+                    ") " +
+                    "SELECT * FROM tree ORDER BY depth, name";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<Long, CategoryTree> cache;
+
+    public CategoryTreeCache(JdbcTemplate jdbcTemplate,
+                             @Value("${cache.category-tree.maximum-size:10000}") long maximumSize,
+                             @Value("${cache.category-tree.expire-after-access-seconds:1800}") long expireAfterAccessSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(Duration.ofSeconds(expireAfterAccessSeconds))
+                .build();
+    }
+
+    public CategoryTree get(Long userId) {
+        return cache.get(userId, this::load);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserDataChanged(UserDataChangedEvent event) {
+        if (INVALIDATING_ENTITIES.contains(event.getEntity())) {
+            cache.invalidate(event.getUserId());
+        }
+    }
+
+    private CategoryTree load(Long userId) {
+        Map<Long, Category> byId = new LinkedHashMap<>();
+        Map<Long, Integer> depths = new HashMap<>();
+        Map<Long, List<Long>> children = new HashMap<>();
+        List<Long> roots = new ArrayList<>();
+        jdbcTemplate.query(SQL_TREE, rs -> {
+            Category c = new Category();
+            c.setCategoryId(rs.getLong("category_id"));
+            c.setUserId(rs.getLong("user_id"));
+            c.setName(rs.getString("name"));
+            c.setDescription(rs.getString("description"));
+            Long parentId = rs.getLong("parent_category_id");
+            c.setParentCategoryId(rs.wasNull() ? null : parentId);
+            c.setCreatedAt(rs.getTimestamp("created_at") != null ? rs.getTimestamp("created_at").toLocalDateTime() : null);
+            c.setUpdatedAt(rs.getTimestamp("updated_at") != null ? rs.getTimestamp("updated_at").toLocalDateTime() : null);
+            int depth = rs.getInt("depth");
+            byId.put(c.getCategoryId(), c);
+            depths.put(c.getCategoryId(), depth);
+            if (depth == 0) {
+                roots.add(c.getCategoryId());
+            } else {
+                children.computeIfAbsent(c.getParentCategoryId(), k -> new ArrayList<>()).add(c.getCategoryId());
+            }
+        }, userId, userId);
+        return new CategoryTree(byId, depths, children, roots);
+    }
+
+    /**
+     * Estructura inmutable del árbol: categorías por id, profundidad, hijos (ordenados por nombre),
+     * raíces y trie de nombres.
+     */
+    public static final class CategoryTree {
+        private final Map<Long, Category> byId;
+        private final Map<Long, Integer> depths;
+        private final Map<Long, List<Long>> children;
+        private final List<Long> roots;
+        private final CategoryNameTrie names;
+
+        private CategoryTree(Map<Long, Category> byId, Map<Long, Integer> depths, Map<Long, List<Long>> children, List<Long> roots) {
+            this.byId = Collections.unmodifiableMap(byId);
+            this.depths = Collections.unmodifiableMap(depths);
+            this.children = Collections.unmodifiableMap(children);
+            this.roots = Collections.unmodifiableList(roots);
+            Map<Long, String> namesById = new LinkedHashMap<>();
+            byId.forEach((id, c) -> namesById.put(id, c.getName()));
+            this.names = CategoryNameTrie.build(namesById);
+        }
+
+        public boolean contains(Long categoryId) {
+            return byId.containsKey(categoryId);
+        }
+
+        public Category category(Long categoryId) {
+            return byId.get(categoryId);
+        }
+
+        public int depth(Long categoryId) {
+            return depths.getOrDefault(categoryId, 0);
+        }
+
+        public List<Long> children(Long categoryId) {
+            return children.getOrDefault(categoryId, List.of());
+        }
+
+        public List<Long> roots() {
+            return roots;
+        }
+
+        public CategoryNameTrie names() {
+            return names;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.cuentas.backend.application.services;
+
+import com.cuentas.backend.application.events.UserDataChangedEvent;
+import com.cuentas.backend.domain.CacheStats;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caché en memoria, por usuario, de los agregados del dashboard.
+ * <p>
+ * Acotada por tamaño y TTL. Pasado refreshAfterWrite la entrada se sigue sirviendo
+ * mientras se recalcula en segundo plano (stale-while-revalidate); pasado
+ * expireAfterWrite se descarta. Cualquier {@link UserDataChangedEvent} invalida
+ * las entradas del usuario tras el commit.
+ */
+@Service
+public class DashboardCache {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardCache.class);
+
+    private final LoadingCache<CacheKey, Object> cache;
+
+    // Generación por usuario: las cargas iniciadas antes de una invalidación quedan huérfanas.
+    // Caduca sin accesos durante expireAfterWrite: para entonces ya no queda ninguna entrada de
+    // una generación anterior que pudiera volver a casar al reiniciarse el contador.
+    private final Cache<Long, AtomicLong> generations;
+
+    public DashboardCache(@Value("${cache.dashboard.maximum-size:10000}") long maximumSize,
+                          @Value("${cache.dashboard.refresh-after-write-seconds:60}") long refreshAfterWriteSeconds,
+                          @Value("${cache.dashboard.expire-after-write-seconds:600}") long expireAfterWriteSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .refreshAfterWrite(Duration.ofSeconds(refreshAfterWriteSeconds))
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .build(key -> key.loader.get());
+        this.generations = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofSeconds(expireAfterWriteSeconds))
+                .build();
+    }
+
+    /**
+     * Devuelve el valor cacheado para (userId, name, params) o lo calcula con loader.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Long userId, String name, List<Object> params, Supplier<T> loader) {
+        long generation = generations.get(userId, k -> new AtomicLong()).get();
+        return (T) cache.get(new CacheKey(userId, generation, name, params, (Supplier<Object>) loader));
+    }
+
+    public void invalidate(Long userId) {
+        // Las entradas de la generación anterior dejan de leerse y salen por tamaño o TTL
+        generations.get(userId, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserDataChanged(UserDataChangedEvent event) {
+        log.debug("Invalidando caché de dashboard por {}", event);
+        invalidate(event.getUserId());
+    }
+
+    public CacheStats getStats() {
+        com.github.benmanes.caffeine.cache.stats.CacheStats stats = cache.stats();
+        return CacheStats.builder()
+                .name("dashboard")
+                .size(cache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .loadSuccessCount(stats.loadSuccessCount())
+                .loadFailureCount(stats.loadFailureCount())
+                .averageLoadMillis(stats.averageLoadPenalty() / 1_000_000.0)
+                .evictionCount(stats.evictionCount())
+                .build();
+    }
+
+    private static final class CacheKey {
+        private final Long userId;
+        private final long generation;
+        private final String name;
+        private final List<Object> params;
+        private final Supplier<Object> loader; // No forma parte de la identidad de la clave
+
+        private CacheKey(Long userId, long generation, String name, List<Object> params, Supplier<Object> loader) {
+            this.userId = userId;
+            this.generation = generation;
+            this.name = name;
+            this.params = params;
+            this.loader = loader;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CacheKey other)) return false;
+            return generation == other.generation
+                    && userId.equals(other.userId)
+                    && name.equals(other.name)
+                    && params.equals(other.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, generation, name, params);
+        }
+    }
+}
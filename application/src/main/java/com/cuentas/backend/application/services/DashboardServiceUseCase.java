@@ -10,26 +10,49 @@ import java.time.LocalDate;
 import java.time.Year;
 import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class DashboardServiceUseCase implements DashboardServicePort {
 
     private final JdbcTemplate jdbcTemplate;
+    private final DashboardCache dashboardCache;
 
-    public DashboardServiceUseCase(JdbcTemplate jdbcTemplate) {
+    private static final int MAX_MONTHLY_SUMMARY_YEARS = 50;
+
+    // Los agregados se leen del rollup diario user_daily_totals (ver UserDailyTotalsService)
+    private static final String SQL_PERIOD_TOTALS =
+            "SELECT COALESCE(SUM(CASE WHEN transaction_type = 'income' THEN total_amount END), 0) AS income, " +
+                    "COALESCE(SUM(CASE WHEN transaction_type = 'expense' THEN total_amount END), 0) AS expense " +
+                    "FROM user_daily_totals WHERE user_id = ? AND day BETWEEN ? AND ?";
+
+    private static final String SQL_MONTHLY_TOTALS =
+            "SELECT DATE_TRUNC('month', day)::date AS month, transaction_type, COALESCE(SUM(total_amount), 0) AS total " +
+                    "FROM user_daily_totals " +
+                    "WHERE user_id = ? AND transaction_type IN ('income', 'expense') AND day BETWEEN ? AND ? " +
+                    "GROUP BY 1, 2";
+
+    public DashboardServiceUseCase(JdbcTemplate jdbcTemplate, DashboardCache dashboardCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.dashboardCache = dashboardCache;
     }
 
     @Override
     public DashboardMetrics getMetrics(Long userId, LocalDate startDate, LocalDate endDate) {
-        DashboardMetrics metrics = new DashboardMetrics();
+        return dashboardCache.get(userId, "metrics", Arrays.asList(startDate, endDate),
+                () -> computeMetrics(userId, startDate, endDate));
+    }
 
-        String sqlIncome = "SELECT COALESCE(SUM(amount),0) FROM transactions WHERE user_id = ? AND transaction_type='income' AND transaction_date BETWEEN ? AND ?";
-        String sqlExpense = "SELECT COALESCE(SUM(amount),0) FROM transactions WHERE user_id = ? AND transaction_type='expense' AND transaction_date BETWEEN ? AND ?";
+    private DashboardMetrics computeMetrics(Long userId, LocalDate startDate, LocalDate endDate) {
+        DashboardMetrics metrics = new DashboardMetrics();
 
-        BigDecimal income = jdbcTemplate.queryForObject(sqlIncome, BigDecimal.class, userId, startDate, endDate);
-        BigDecimal expense = jdbcTemplate.queryForObject(sqlExpense, BigDecimal.class, userId, startDate, endDate);
+        BigDecimal[] totals = getPeriodTotals(userId, startDate, endDate);
+        BigDecimal income = totals[0];
+        BigDecimal expense = totals[1];
 
         metrics.setTotalIncome(income);
         metrics.setTotalExpenses(expense);
@@ -40,6 +63,12 @@ public class DashboardServiceUseCase implements DashboardServicePort {
 
     @Override
     public PeriodSummary getPeriodSummary(Long userId, String period) {
+        // La fecha forma parte de la clave: el periodo "actual" cambia al cambiar de día
+        return dashboardCache.get(userId, "period", Arrays.asList(period, LocalDate.now()),
+                () -> computePeriodSummary(userId, period));
+    }
+
+    private PeriodSummary computePeriodSummary(Long userId, String period) {
         LocalDate start;
         LocalDate end;
 
@@ -56,11 +85,9 @@ public class DashboardServiceUseCase implements DashboardServicePort {
             end = current.atEndOfMonth();
         }
 
-        String sqlIncome = "SELECT COALESCE(SUM(amount),0) FROM transactions WHERE user_id=? AND transaction_type='income' AND transaction_date BETWEEN ? AND ?";
-        String sqlExpense = "SELECT COALESCE(SUM(amount),0) FROM transactions WHERE user_id=? AND transaction_type='expense' AND transaction_date BETWEEN ? AND ?";
-
-        BigDecimal income = jdbcTemplate.queryForObject(sqlIncome, BigDecimal.class, userId, start, end);
-        BigDecimal expense = jdbcTemplate.queryForObject(sqlExpense, BigDecimal.class, userId, start, end);
+        BigDecimal[] totals = getPeriodTotals(userId, start, end);
+        BigDecimal income = totals[0];
+        BigDecimal expense = totals[1];
 
         PeriodSummary summary = new PeriodSummary();
         summary.setPeriod(period);
@@ -73,26 +100,72 @@ public class DashboardServiceUseCase implements DashboardServicePort {
         return summary;
     }
 
+    private BigDecimal[] getPeriodTotals(Long userId, LocalDate start, LocalDate end) {
+        return jdbcTemplate.queryForObject(SQL_PERIOD_TOTALS, (rs, rowNum) -> new BigDecimal[]{
+                rs.getBigDecimal("income"),
+                rs.getBigDecimal("expense")
+        }, userId, start, end);
+    }
+
     @Override
     public List<PeriodSummary> getMonthlySummary(Long userId, Integer year) {
         if (year == null) year = LocalDate.now().getYear();
+        return getMonthlySummary(userId, year, year);
+    }
 
-        List<PeriodSummary> summaries = new ArrayList<>();
-        for (int month = 1; month <= 12; month++) {
-            YearMonth ym = YearMonth.of(year, month);
-            LocalDate start = ym.atDay(1);
-            LocalDate end = ym.atEndOfMonth();
+    @Override
+    public List<PeriodSummary> getMonthlySummary(Long userId, Integer startYear, Integer endYear) {
+        if (startYear == null && endYear == null) {
+            startYear = LocalDate.now().getYear();
+            endYear = startYear;
+        } else if (startYear == null) {
+            startYear = endYear;
+        } else if (endYear == null) {
+            endYear = startYear;
+        }
+        if (endYear < startYear) {
+            throw new IllegalArgumentException("endYear debe ser mayor o igual a startYear");
+        }
+        if (endYear - startYear + 1 > MAX_MONTHLY_SUMMARY_YEARS) {
+            throw new IllegalArgumentException("El rango máximo es de " + MAX_MONTHLY_SUMMARY_YEARS + " años");
+        }
 
-            String sqlIncome = "SELECT COALESCE(SUM(amount),0) FROM transactions WHERE user_id=? AND transaction_type='income' AND transaction_date BETWEEN ? AND ?";
-            String sqlExpense = "SELECT COALESCE(SUM(amount),0) FROM transactions WHERE user_id=? AND transaction_type='expense' AND transaction_date BETWEEN ? AND ?";
+        int fromYear = startYear;
+        int toYear = endYear;
+        return dashboardCache.get(userId, "monthly", List.of(fromYear, toYear),
+                () -> computeMonthlySummary(userId, fromYear, toYear));
+    }
 
-            BigDecimal income = jdbcTemplate.queryForObject(sqlIncome, BigDecimal.class, userId, start, end);
-            BigDecimal expense = jdbcTemplate.queryForObject(sqlExpense, BigDecimal.class, userId, start, end);
+    private List<PeriodSummary> computeMonthlySummary(Long userId, int startYear, int endYear) {
+        LocalDate start = LocalDate.of(startYear, 1, 1);
+        LocalDate end = LocalDate.of(endYear, 12, 31);
+
+        // Una sola pasada: ingresos y gastos agrupados por mes y tipo
+        Map<YearMonth, BigDecimal[]> monthSums = jdbcTemplate.query(SQL_MONTHLY_TOTALS, rs -> {
+            Map<YearMonth, BigDecimal[]> map = new HashMap<>();
+            while (rs.next()) {
+                YearMonth ym = YearMonth.from(rs.getDate("month").toLocalDate());
+                BigDecimal[] sums = map.computeIfAbsent(ym, k -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+                if ("income".equals(rs.getString("transaction_type"))) {
+                    sums[0] = rs.getBigDecimal("total");
+                } else {
+                    sums[1] = rs.getBigDecimal("total");
+                }
+            }
+            return map;
+        }, userId, start, end);
+
+        // Rellenar con ceros los meses sin movimientos
+        List<PeriodSummary> summaries = new ArrayList<>();
+        for (YearMonth ym = YearMonth.from(start); !ym.isAfter(YearMonth.from(end)); ym = ym.plusMonths(1)) {
+            BigDecimal[] sums = monthSums.getOrDefault(ym, new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+            BigDecimal income = sums[0];
+            BigDecimal expense = sums[1];
 
             PeriodSummary summary = new PeriodSummary();
             summary.setPeriod(ym.toString());
-            summary.setStartDate(start);
-            summary.setEndDate(end);
+            summary.setStartDate(ym.atDay(1));
+            summary.setEndDate(ym.atEndOfMonth());
             summary.setTotalIncome(income);
             summary.setTotalExpenses(expense);
             summary.setNetProfit(income.subtract(expense));
@@ -100,7 +173,7 @@ public class DashboardServiceUseCase implements DashboardServicePort {
             summaries.add(summary);
         }
 
-        return summaries;
+        return Collections.unmodifiableList(summaries);
     }
 
     @Override
@@ -111,12 +184,13 @@ public class DashboardServiceUseCase implements DashboardServicePort {
         String sqlInitial = "SELECT acquisition_value FROM assets WHERE user_id=? AND asset_id=?";
         BigDecimal initialValue = jdbcTemplate.queryForObject(sqlInitial, BigDecimal.class, userId, assetId);
 
+        // Última valoración (proyección mantenida por los triggers de asset_values); null si no hay valoraciones
         String sqlCurrent = "SELECT current_value FROM assets WHERE user_id=? AND asset_id=?";
         Double currentValue = jdbcTemplate.queryForObject(sqlCurrent, Double.class, userId, assetId);
 
         perf.setInitialValue(initialValue);
         perf.setCurrentValue(currentValue);
-        if (initialValue.compareTo(BigDecimal.ZERO) != 0) {
+        if (initialValue != null && currentValue != null && initialValue.compareTo(BigDecimal.ZERO) != 0) {
             BigDecimal roi = BigDecimal.valueOf(currentValue)
                     .subtract(initialValue)
                     .divide(initialValue, 4, BigDecimal.ROUND_HALF_UP)
@@ -133,18 +207,12 @@ public class DashboardServiceUseCase implements DashboardServicePort {
         LiabilityProgress progress = new LiabilityProgress();
         progress.setLiabilityId(liabilityId);
 
-        // Obtener principal desde la tabla liabilities
-        String sqlPrincipal = "SELECT principal_amount FROM liabilities WHERE user_id=? AND liability_id=?";
-        BigDecimal principal = jdbcTemplate.queryForObject(sqlPrincipal, BigDecimal.class, userId, liabilityId);
-
-        // Obtener el último outstanding_balance desde liability_values (última valoración)
-        String sqlOutstanding = "SELECT outstanding_balance FROM liability_values WHERE liability_id=? ORDER BY valuation_date DESC LIMIT 1";
-        BigDecimal outstanding = jdbcTemplate.query(sqlOutstanding, rs -> {
-            if (rs.next()) {
-                return rs.getBigDecimal("outstanding_balance");
-            }
-            return null;
-        }, liabilityId);
+        // Principal y último saldo pendiente (proyección en liabilities) en una sola lectura
+        String sql = "SELECT principal_amount, outstanding_balance FROM liabilities WHERE user_id=? AND liability_id=?";
+        BigDecimal[] values = jdbcTemplate.queryForObject(sql, (rs, rowNum) ->
+                new BigDecimal[]{rs.getBigDecimal("principal_amount"), rs.getBigDecimal("outstanding_balance")}, userId, liabilityId);
+        BigDecimal principal = values[0];
+        BigDecimal outstanding = values[1];
 
         // Seguridad ante nulos
         BigDecimal remaining = outstanding != null ? outstanding : BigDecimal.ZERO;
@@ -0,0 +1,66 @@
+package com.cuentas.backend.application.services;
+
+import com.cuentas.backend.application.events.UserDataChangedEvent;
+import com.cuentas.backend.application.ports.driving.DataVersionServicePort;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Versión monotónica de los datos de cada usuario (users.data_version).
+ * <p>
+ * Se incrementa de forma síncrona, dentro de la misma transacción, con cada
+ * {@link UserDataChangedEvent}. La lectura se cachea en memoria y la entrada se
+ * descarta tras el commit, de modo que una petición sin cambios solo cuesta
+ * como mucho una consulta por clave primaria.
+ */
+@Service
+public class DataVersionServiceUseCase implements DataVersionServicePort {
+
+    private static final String SQL_SELECT_VERSION =
+            "SELECT data_version FROM users WHERE user_id = ?";
+
+    private static final String SQL_BUMP_VERSION =
+            "UPDATE users SET data_version = data_version + 1 WHERE user_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<Long, Long> versions;
+
+    public DataVersionServiceUseCase(JdbcTemplate jdbcTemplate,
+                                     @Value("${cache.data-version.maximum-size:10000}") long maximumSize,
+                                     @Value("${cache.data-version.expire-after-write-seconds:300}") long expireAfterWriteSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        // El TTL solo cubre escrituras hechas por otras instancias o fuera de la aplicación
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .build();
+    }
+
+    @Override
+    public long getDataVersion(Long userId) {
+        return versions.get(userId, this::loadVersion);
+    }
+
+    private Long loadVersion(Long userId) {
+        List<Long> rows = jdbcTemplate.queryForList(SQL_SELECT_VERSION, Long.class, userId);
+        return rows.isEmpty() ? 0L : rows.get(0);
+    }
+
+    @EventListener
+    public void bumpVersion(UserDataChangedEvent event) {
+        jdbcTemplate.update(SQL_BUMP_VERSION, event.getUserId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void evictVersion(UserDataChangedEvent event) {
+        versions.invalidate(event.getUserId());
+    }
+}
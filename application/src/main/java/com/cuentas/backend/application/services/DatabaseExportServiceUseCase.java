@@ -222,7 +222,10 @@ public class DatabaseExportServiceUseCase implements DatabaseExportServicePort {
 
         List<String> columnNames = new ArrayList<>();
         for (Map<String, Object> col : columns) {
-            columnNames.add((String) col.get("column_name"));
+            String columnName = (String) col.get("column_name");
+            // sync_xid es metadato de sincronización: al restaurar se regenera con su DEFAULT
+            if ("sync_xid".equals(columnName)) continue;
+            columnNames.add(columnName);
         }
 
         // Construir query SELECT
@@ -1,6 +1,7 @@
 // language: java
 package com.cuentas.backend.application.services;
 
+import com.cuentas.backend.application.events.UserDataChangedEvent;
 import com.cuentas.backend.application.ports.driving.ExcelNewServicePort;
 import com.cuentas.backend.domain.File;
 import com.cuentas.backend.domain.Transaction;
@@ -11,6 +12,7 @@ import org.apache.poi.openxml4j.util.ZipSecureFile;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -40,8 +42,11 @@ public class ExcelNewServiceUseCase implements ExcelNewServicePort {
     // =======================
     private static final String SQL_SELECT_ASSET_TYPE_ID = "SELECT asset_type_id FROM asset_types WHERE name = ?";
     private static final String SQL_SELECT_LIABILITY_TYPE_ID = "SELECT liability_type_id FROM liability_types WHERE name = ?";
+    // transactions está particionada por año: el rango de fechas limita el borrado a una partición
     private static final String SQL_DELETE_TRANSACTIONS_YEAR =
             "DELETE FROM transactions WHERE user_id = ? AND transaction_date >= ? AND transaction_date <= ?";
+    private static final String SQL_ENSURE_TRANSACTIONS_PARTITION =
+            "SELECT ensure_transactions_partition(?)";
 
     private static final String SQL_DELETE_ASSET_VALUES_YEAR =
             "DELETE FROM asset_values av USING assets a WHERE av.asset_id = a.asset_id AND a.user_id = ? AND av.valuation_date >= ? AND av.valuation_date <= ?";
@@ -75,10 +80,13 @@ public class ExcelNewServiceUseCase implements ExcelNewServicePort {
     private static final String SQL_UPDATE_LIABILITY =
             "UPDATE liabilities SET principal_amount = ?, start_date = ?, updated_at = NOW() WHERE liability_id = ?";
 
-    private static final String SQL_INSERT_ASSET_VALUE =
-            "INSERT INTO asset_values (asset_id, valuation_date, current_value, created_at) VALUES (?, ?, ?, NOW())";
-    private static final String SQL_INSERT_LIABILITY_VALUE =
-            "INSERT INTO liability_values (liability_id, valuation_date, end_date, outstanding_balance, created_at) VALUES (?, ?, ?, ?, NOW())";
+    // Reimportar el mismo Excel sobrescribe la valoración del día (uq_*_date de V1.0.15)
+    private static final String SQL_UPSERT_ASSET_VALUE =
+            "INSERT INTO asset_values (asset_id, valuation_date, current_value, created_at) VALUES (?, ?, ?, NOW()) " +
+                    "ON CONFLICT (asset_id, valuation_date) DO UPDATE SET current_value = EXCLUDED.current_value";
+    private static final String SQL_UPSERT_LIABILITY_VALUE =
+            "INSERT INTO liability_values (liability_id, valuation_date, end_date, outstanding_balance, created_at) VALUES (?, ?, ?, ?, NOW()) " +
+                    "ON CONFLICT (liability_id, valuation_date) DO UPDATE SET outstanding_balance = EXCLUDED.outstanding_balance, end_date = EXCLUDED.end_date";
 
     // interests
     private static final String SQL_SELECT_INTEREST =
@@ -115,7 +123,7 @@ public class ExcelNewServiceUseCase implements ExcelNewServicePort {
                     "LEFT JOIN assets a ON t.asset_id = a.asset_id " +
                     "LEFT JOIN liabilities l ON t.liability_id = l.liability_id " +
                     "LEFT JOIN assets ra ON t.related_asset_id = ra.asset_id " +
-                    "WHERE t.user_id = ? AND t.transaction_type = 'income' AND DATE_TRUNC('month', t.transaction_date) = DATE_TRUNC('month', ?::date) " +
+                    "WHERE t.user_id = ? AND t.transaction_type = 'income' AND t.transaction_date >= ? AND t.transaction_date < ? " +
                     "ORDER BY t.transaction_id";
 
     private static final String sqlExpense =
@@ -127,12 +135,20 @@ public class ExcelNewServiceUseCase implements ExcelNewServicePort {
                     "LEFT JOIN assets a ON t.asset_id = a.asset_id " +
                     "LEFT JOIN liabilities l ON t.liability_id = l.liability_id " +
                     "LEFT JOIN assets ra ON t.related_asset_id = ra.asset_id " +
-                    "WHERE t.user_id = ? AND t.transaction_type = 'expense' AND DATE_TRUNC('month', t.transaction_date) = DATE_TRUNC('month', ?::date) " +
+                    "WHERE t.user_id = ? AND t.transaction_type = 'expense' AND t.transaction_date >= ? AND t.transaction_date < ? " +
                     "ORDER BY t.transaction_id";
 
 
-    public ExcelNewServiceUseCase(JdbcTemplate jdbcTemplate) {
+    private final UserDailyTotalsService dailyTotalsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CategoryTreeCache categoryTreeCache;
+
+    public ExcelNewServiceUseCase(JdbcTemplate jdbcTemplate, UserDailyTotalsService dailyTotalsService,
+                                  ApplicationEventPublisher eventPublisher, CategoryTreeCache categoryTreeCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.dailyTotalsService = dailyTotalsService;
+        this.eventPublisher = eventPublisher;
+        this.categoryTreeCache = categoryTreeCache;
     }
 
     @Override
@@ -149,6 +165,8 @@ public class ExcelNewServiceUseCase implements ExcelNewServicePort {
         try (InputStream is = new ByteArrayInputStream(data);
              Workbook workbook = WorkbookFactory.create(is)) {
 
+            jdbcTemplate.queryForList(SQL_ENSURE_TRANSACTIONS_PARTITION, year);
+
             log.info("Eliminando datos previos para user={} year={}", userId, year);
             deleteYearlyData(userId, year);
 
@@ -157,6 +175,10 @@ public class ExcelNewServiceUseCase implements ExcelNewServicePort {
                     "Julio", "Agosto", "Septiembre", "Octubre", "Noviembre", "Diciembre"
             );
 
+            // Rango afectado en el rollup diario: el año borrado más cualquier fecha importada fuera de él
+            LocalDate rollupFrom = LocalDate.of(year, 1, 1);
+            LocalDate rollupTo = LocalDate.of(year, 12, 31);
+
             for (String monthName : months) {
                 Sheet sheet = workbook.getSheet(monthName);
                 if (sheet == null) continue;
@@ -178,8 +200,20 @@ public class ExcelNewServiceUseCase implements ExcelNewServicePort {
 
                 log.info("Filas leídas - Ingresos: {}, Gastos: {}, Activos: {}, Pasivos: {}",
                         incomeTransactionList.size(), expenseTransactionList.size(), assetCount, liabilityCount);
+
+                for (Transaction t : incomeTransactionList) {
+                    if (t.getTransactionDate().isBefore(rollupFrom)) rollupFrom = t.getTransactionDate();
+                    if (t.getTransactionDate().isAfter(rollupTo)) rollupTo = t.getTransactionDate();
+                }
+                for (Transaction t : expenseTransactionList) {
+                    if (t.getTransactionDate().isBefore(rollupFrom)) rollupFrom = t.getTransactionDate();
+                    if (t.getTransactionDate().isAfter(rollupTo)) rollupTo = t.getTransactionDate();
+                }
             }
 
+            dailyTotalsService.rebuild(userId, rollupFrom, rollupTo);
+            eventPublisher.publishEvent(new UserDataChangedEvent(userId, "import"));
+
         } catch (Exception e) {
             log.error("Error procesando Excel: {}", e.getMessage(), e);
             throw new RuntimeException("Error procesando Excel", e);
@@ -394,11 +428,11 @@ public class ExcelNewServiceUseCase implements ExcelNewServicePort {
     }
 
     private void insertAssetValue(Long assetId, LocalDate valuationDate, Double currentValue) {
-        jdbcTemplate.update(SQL_INSERT_ASSET_VALUE, assetId, valuationDate, currentValue);
+        jdbcTemplate.update(SQL_UPSERT_ASSET_VALUE, assetId, valuationDate, currentValue);
     }
 
     private void insertLiabilityValue(Long liabilityId, LocalDate valuationDate, LocalDate endDate, Double outstandingBalance) {
-        jdbcTemplate.update(SQL_INSERT_LIABILITY_VALUE, liabilityId, valuationDate, endDate, outstandingBalance);
+        jdbcTemplate.update(SQL_UPSERT_LIABILITY_VALUE, liabilityId, valuationDate, endDate, outstandingBalance);
     }
 
     private Long upsertInterest(Long liabilityId, BigDecimal annualRate, LocalDate startDate) {
@@ -521,6 +555,11 @@ public class ExcelNewServiceUseCase implements ExcelNewServicePort {
     }
 
     private Long getCategoryId(Long userId, String name) {
+        // Categorías existentes desde el trie cacheado; solo las nuevas (o ambiguas) van a la base de datos
+        Long cached = categoryTreeCache.get(userId).names().resolve(name);
+        if (cached != null) {
+            return cached;
+        }
         try {
             return jdbcTemplate.queryForObject(SQL_SELECT_CATEGORY, Long.class, userId, name);
         } catch (DataAccessException e) {
@@ -584,8 +623,10 @@ public class ExcelNewServiceUseCase implements ExcelNewServicePort {
                 }
 
                 // Consultas por mes (reutilizan las constantes ya definidas)
-                List<Map<String, Object>> incomes = jdbcTemplate.queryForList(sqlIncome, userId, firstOfMonth);
-                List<Map<String, Object>> expenses = jdbcTemplate.queryForList(sqlExpense, userId, firstOfMonth);
+                // Rango [inicio de mes, inicio del mes siguiente) para que se limite a la partición del año
+                LocalDate firstOfNextMonth = firstOfMonth.plusMonths(1);
+                List<Map<String, Object>> incomes = jdbcTemplate.queryForList(sqlIncome, userId, firstOfMonth, firstOfNextMonth);
+                List<Map<String, Object>> expenses = jdbcTemplate.queryForList(sqlExpense, userId, firstOfMonth, firstOfNextMonth);
 
                 // Escribir transacciones (fila inicial 3 => índice 2)
                 int txStartRow = 2;
@@ -1,11 +1,13 @@
 package com.cuentas.backend.application.services;
 
+import com.cuentas.backend.application.events.UserDataChangedEvent;
 import com.cuentas.backend.application.ports.driving.ExcelServicePort;
 import com.cuentas.backend.domain.File;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -37,19 +39,31 @@ public class ExcelOldServiceUseCase implements ExcelServicePort {
             "INSERT INTO transactions (user_id, category_id, asset_id, liability_id, amount, transaction_date) VALUES (?, ?, ?, ?, ?, ?)";
     private static final String SQL_SELECT_ASSET =
             "SELECT asset_id FROM assets WHERE user_id = ? AND name = ?";
+    // current_value / outstanding_balance son la proyección que mantienen los triggers de
+    // asset_values / liability_values (V1.0.14): el valor se guarda como valoración
     private static final String SQL_INSERT_ASSET =
-            "INSERT INTO assets (user_id, asset_type_id, name, acquisition_value, current_value, acquisition_date, created_at) VALUES (?, ?, ?, ?, ?, ?, NOW()) RETURNING asset_id";
-    private static final String SQL_UPDATE_ASSET =
-            "UPDATE assets SET current_value = ?, updated_at = NOW() WHERE asset_id = ?";
+            "INSERT INTO assets (user_id, asset_type_id, name, acquisition_value, acquisition_date, created_at) VALUES (?, ?, ?, ?, ?, NOW()) RETURNING asset_id";
+    private static final String SQL_UPSERT_ASSET_VALUE =
+            "INSERT INTO asset_values (asset_id, valuation_date, current_value) VALUES (?, ?, ?) " +
+                    "ON CONFLICT (asset_id, valuation_date) DO UPDATE SET current_value = EXCLUDED.current_value";
     private static final String SQL_SELECT_LIABILITY =
             "SELECT liability_id FROM liabilities WHERE user_id = ? AND name = ?";
     private static final String SQL_INSERT_LIABILITY =
-            "INSERT INTO liabilities (user_id, liability_type_id, name, principal_amount, outstanding_balance, start_date, created_at) VALUES (?, ?, ?, ?, ?, ?, NOW()) RETURNING liability_id";
-    private static final String SQL_UPDATE_LIABILITY =
-            "UPDATE liabilities SET outstanding_balance = ?, updated_at = NOW() WHERE liability_id = ?";
+            "INSERT INTO liabilities (user_id, liability_type_id, name, principal_amount, start_date, created_at) VALUES (?, ?, ?, ?, ?, NOW()) RETURNING liability_id";
+    private static final String SQL_UPSERT_LIABILITY_VALUE =
+            "INSERT INTO liability_values (liability_id, valuation_date, outstanding_balance) VALUES (?, ?, ?) " +
+                    "ON CONFLICT (liability_id, valuation_date) DO UPDATE SET outstanding_balance = EXCLUDED.outstanding_balance";
 
-    public ExcelOldServiceUseCase(JdbcTemplate jdbcTemplate) {
+    private final UserDailyTotalsService dailyTotalsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CategoryTreeCache categoryTreeCache;
+
+    public ExcelOldServiceUseCase(JdbcTemplate jdbcTemplate, UserDailyTotalsService dailyTotalsService,
+                                  ApplicationEventPublisher eventPublisher, CategoryTreeCache categoryTreeCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.dailyTotalsService = dailyTotalsService;
+        this.eventPublisher = eventPublisher;
+        this.categoryTreeCache = categoryTreeCache;
     }
 
     @Override
@@ -98,6 +112,10 @@ public class ExcelOldServiceUseCase implements ExcelServicePort {
                 saveLiabilities(investedMatrix, userId, defaultDate);
             }
 
+            // Las transacciones de activos/pasivos usan su propia fecha: recalcular el rollup completo
+            dailyTotalsService.rebuild(userId);
+            eventPublisher.publishEvent(new UserDataChangedEvent(userId, "import"));
+
         } catch (Exception e) {
             log.error("Error procesando Excel: {}", e.getMessage(), e);
             throw new RuntimeException("Error procesando Excel", e);
@@ -174,6 +192,13 @@ public class ExcelOldServiceUseCase implements ExcelServicePort {
             String category = (String) row.get(0);
             if (category == null || category.isBlank()) category = "Sin categoría";
 
+            // Categorías existentes desde el trie cacheado; solo las nuevas (o ambiguas) van a la base de datos
+            Long cachedId = categoryTreeCache.get(userId).names().resolve(category);
+            if (cachedId != null) {
+                row.set(0, cachedId);
+                continue;
+            }
+
             try {
                 Long existingId = jdbcTemplate.queryForObject(SQL_SELECT_CATEGORY, Long.class, userId, category);
                 row.set(0, existingId);
@@ -193,38 +218,40 @@ public class ExcelOldServiceUseCase implements ExcelServicePort {
 
     private Long upsertAsset(long userId, String name, double acquisitionValue,
                              double currentValue, LocalDate acquisitionDate, Long assetTypeId) {
+        Long assetId;
         try {
-            Long assetId = jdbcTemplate.queryForObject(SQL_SELECT_ASSET, Long.class, userId, name);
-            jdbcTemplate.update(SQL_UPDATE_ASSET, currentValue, assetId);
-            return assetId;
+            assetId = jdbcTemplate.queryForObject(SQL_SELECT_ASSET, Long.class, userId, name);
         } catch (DataAccessException e) {
-            return insertAndReturnId(SQL_INSERT_ASSET, ps -> {
+            assetId = insertAndReturnId(SQL_INSERT_ASSET, ps -> {
                 ps.setLong(1, userId);
                 ps.setLong(2, assetTypeId);
                 ps.setString(3, name);
                 ps.setDouble(4, acquisitionValue);
-                ps.setDouble(5, currentValue);
-                ps.setDate(6, java.sql.Date.valueOf(acquisitionDate));
+                ps.setDate(5, java.sql.Date.valueOf(acquisitionDate));
             });
         }
+        // Valoración a la fecha de la fila; el trigger actualiza current_value y current_value_date
+        jdbcTemplate.update(SQL_UPSERT_ASSET_VALUE, assetId, acquisitionDate, currentValue);
+        return assetId;
     }
 
     private Long upsertLiability(long userId, String name, double principal, double outstanding,
                                  LocalDate startDate, Long liabilityTypeId) {
+        Long liabilityId;
         try {
-            Long liabilityId = jdbcTemplate.queryForObject(SQL_SELECT_LIABILITY, Long.class, userId, name);
-            jdbcTemplate.update(SQL_UPDATE_LIABILITY, outstanding, liabilityId);
-            return liabilityId;
+            liabilityId = jdbcTemplate.queryForObject(SQL_SELECT_LIABILITY, Long.class, userId, name);
         } catch (DataAccessException e) {
-            return insertAndReturnId(SQL_INSERT_LIABILITY, ps -> {
+            liabilityId = insertAndReturnId(SQL_INSERT_LIABILITY, ps -> {
                 ps.setLong(1, userId);
                 ps.setLong(2, liabilityTypeId);
                 ps.setString(3, name);
                 ps.setDouble(4, principal);
-                ps.setDouble(5, outstanding);
-                ps.setDate(6, java.sql.Date.valueOf(startDate));
+                ps.setDate(5, java.sql.Date.valueOf(startDate));
             });
         }
+        // Snapshot a la fecha de la fila; el trigger actualiza outstanding_balance y su fecha
+        jdbcTemplate.update(SQL_UPSERT_LIABILITY_VALUE, liabilityId, startDate, outstanding);
+        return liabilityId;
     }
 
     // =======================
@@ -32,10 +32,9 @@ public class FinancialContextBuilder {
                     "WHERE a.user_id = ? ORDER BY a.name";
 
     private static final String SQL_ASSETS_WITH_LATEST =
-            "SELECT a.name, at.name AS asset_type, a.acquisition_date, a.acquisition_value, av.current_value " +
+            "SELECT a.name, at.name AS asset_type, a.acquisition_date, a.acquisition_value, a.current_value " +
                     "FROM assets a " +
                     "LEFT JOIN asset_types at ON a.asset_type_id = at.asset_type_id " +
-                    "LEFT JOIN LATERAL (SELECT current_value FROM asset_values av WHERE av.asset_id = a.asset_id ORDER BY valuation_date DESC LIMIT 1) av ON true " +
                     "WHERE a.user_id = ? ORDER BY a.name";
 
     private static final String SQL_LIABILITIES_WITH_VALUE_BY_DATE =
@@ -47,11 +46,11 @@ public class FinancialContextBuilder {
                     "WHERE l.user_id = ? ORDER BY l.name";
 
     private static final String SQL_LIABILITIES_WITH_LATEST =
-            "SELECT l.name, lt.name AS liability_type, l.principal_amount, i.annual_rate, l.start_date, lv.end_date, lv.outstanding_balance " +
+            "SELECT l.name, lt.name AS liability_type, l.principal_amount, i.annual_rate, l.start_date, " +
+                    "l.outstanding_end_date AS end_date, l.outstanding_balance " +
                     "FROM liabilities l " +
                     "LEFT JOIN liability_types lt ON l.liability_type_id = lt.liability_type_id " +
                     "LEFT JOIN interests i ON i.liability_id = l.liability_id AND i.start_date = l.start_date " +
-                    "LEFT JOIN LATERAL (SELECT end_date, outstanding_balance FROM liability_values lv WHERE lv.liability_id = l.liability_id ORDER BY valuation_date DESC LIMIT 1) lv ON true " +
                     "WHERE l.user_id = ? ORDER BY l.name";
 
     private static final String SQL_ALL_TRANSACTIONS =
@@ -141,18 +140,10 @@ public class FinancialContextBuilder {
     
     private void appendSummary(StringBuilder context, Long userId) {
         try {
-            // Solo usar los valores MÁS RECIENTES de cada activo y pasivo
+            // Valores MÁS RECIENTES de cada activo y pasivo (proyección en assets / liabilities)
             String sql = "SELECT " +
-                    "COALESCE((SELECT SUM(av.current_value) FROM asset_values av " +
-                    "JOIN assets a ON av.asset_id = a.asset_id " +
-                    "JOIN (SELECT asset_id, MAX(valuation_date) as max_date FROM asset_values GROUP BY asset_id) latest " +
-                    "ON av.asset_id = latest.asset_id AND av.valuation_date = latest.max_date " +
-                    "WHERE a.user_id = ?), 0) AS total_assets, " +
-                    "COALESCE((SELECT SUM(lv.outstanding_balance) FROM liability_values lv " +
-                    "JOIN liabilities l ON lv.liability_id = l.liability_id " +
-                    "JOIN (SELECT liability_id, MAX(valuation_date) as max_date FROM liability_values GROUP BY liability_id) latest " +
-                    "ON lv.liability_id = latest.liability_id AND lv.valuation_date = latest.max_date " +
-                    "WHERE l.user_id = ?), 0) AS total_liabilities";
+                    "COALESCE((SELECT SUM(a.current_value) FROM assets a WHERE a.user_id = ?), 0) AS total_assets, " +
+                    "COALESCE((SELECT SUM(l.outstanding_balance) FROM liabilities l WHERE l.user_id = ?), 0) AS total_liabilities";
             
             Map<String, Object> totals = jdbcTemplate.queryForMap(sql, userId, userId);
             BigDecimal totalAssets = (BigDecimal) totals.get("total_assets");
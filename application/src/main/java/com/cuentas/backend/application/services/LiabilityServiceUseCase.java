@@ -1,11 +1,16 @@
 package com.cuentas.backend.application.services;
 
 import com.cuentas.backend.application.ports.driving.LiabilityServicePort;
+import com.cuentas.backend.domain.CreateLiabilityValueRequest;
 import com.cuentas.backend.domain.Interest;
 import com.cuentas.backend.domain.Liability;
 import com.cuentas.backend.domain.LiabilityDetail;
 import com.cuentas.backend.domain.LiabilityValue;
+import com.cuentas.backend.domain.LiabilityValuePage;
 import com.cuentas.backend.domain.Transaction;
+import com.cuentas.backend.domain.TransactionPage;
+import com.cuentas.backend.application.events.UserDataChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,30 +22,71 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.ArrayList;
 
 @Service
 public class LiabilityServiceUseCase implements LiabilityServicePort {
 
     private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
 
     // SQL para liability_values
     private static final String SQL_SELECT_LIABILITY_VALUES_BY_LIABILITY =
             "SELECT value_id, liability_id, valuation_date, end_date, outstanding_balance, created_at " +
                     "FROM liability_values WHERE liability_id = ? ORDER BY valuation_date";
 
-    private static final String SQL_SELECT_LIABILITY_VALUES_BY_USER =
+    // Últimos N valores de cada pasivo dentro de la ventana (LATERAL + LIMIT sobre el índice por fecha)
+    private static final String SQL_SELECT_LATEST_LIABILITY_VALUES_BY_USER =
+            "SELECT v.* FROM liabilities l " +
+                    "CROSS JOIN LATERAL ( " +
+                    "  SELECT lv.value_id, lv.liability_id, lv.valuation_date, lv.end_date, lv.outstanding_balance, lv.created_at " +
+                    "  FROM liability_values lv " +
+                    "  WHERE lv.liability_id = l.liability_id " +
+                    "  AND lv.valuation_date >= COALESCE(?::date, '-infinity'::date) " +
+                    "  AND lv.valuation_date <= COALESCE(?::date, 'infinity'::date) " +
+                    "  ORDER BY lv.valuation_date DESC, lv.value_id DESC LIMIT ? " +
+                    ") v " +
+                    "WHERE l.user_id = ? " +
+                    "ORDER BY v.liability_id, v.valuation_date, v.value_id";
+
+    private static final String SQL_SELECT_LIABILITY_VALUES_PAGE =
             "SELECT lv.value_id, lv.liability_id, lv.valuation_date, lv.end_date, lv.outstanding_balance, lv.created_at " +
                     "FROM liability_values lv JOIN liabilities l ON lv.liability_id = l.liability_id " +
-                    "WHERE l.user_id = ? ORDER BY lv.liability_id, lv.valuation_date";
+                    "WHERE l.user_id = ? AND lv.liability_id = ?";
 
     // SQL para interests
     private static final String SQL_SELECT_INTERESTS_BY_LIABILITY =
             "SELECT interest_id, liability_id, type, annual_rate, start_date, created_at " +
                     "FROM interests WHERE liability_id = ? ORDER BY start_date";
 
-    public LiabilityServiceUseCase(JdbcTemplate jdbcTemplate) {
+    // Alta o actualización del snapshot del día en una sola sentencia; sin filas si el pasivo no es del usuario
+    private static final String SQL_UPSERT_LIABILITY_VALUE =
+            "INSERT INTO liability_values (liability_id, valuation_date, end_date, outstanding_balance) " +
+                    "SELECT l.liability_id, ?, ?, ? FROM liabilities l WHERE l.user_id = ? AND l.liability_id = ? " +
+                    "ON CONFLICT (liability_id, valuation_date) DO UPDATE " +
+                    "SET outstanding_balance = EXCLUDED.outstanding_balance, end_date = EXCLUDED.end_date " +
+                    "RETURNING value_id";
+
+    private static final String SQL_SELECT_OWNED_LIABILITY_IDS =
+            "SELECT liability_id FROM liabilities WHERE user_id = ? AND liability_id = ANY(?::int[])";
+
+    // Carga masiva: N snapshots en una única sentencia a partir de arrays paralelos
+    private static final String SQL_UPSERT_LIABILITY_VALUES =
+            "INSERT INTO liability_values (liability_id, valuation_date, end_date, outstanding_balance) " +
+                    "SELECT * FROM unnest(?::int[], ?::date[], ?::date[], ?::numeric[]) " +
+                    "ON CONFLICT (liability_id, valuation_date) DO UPDATE " +
+                    "SET outstanding_balance = EXCLUDED.outstanding_balance, end_date = EXCLUDED.end_date " +
+                    "RETURNING value_id, liability_id, valuation_date, end_date, outstanding_balance, created_at";
+
+    private static final int MAX_BULK_VALUES = 5000;
+
+    public LiabilityServiceUseCase(JdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
         this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -57,6 +103,7 @@ public class LiabilityServiceUseCase implements LiabilityServicePort {
         );
         liability.setLiabilityId(id);
         liability.setUserId(userId);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "liability"));
         return liability;
     }
 
@@ -75,6 +122,17 @@ public class LiabilityServiceUseCase implements LiabilityServicePort {
 
     @Override
     public List<Liability> listLiabilities(Long userId) {
+        return listLiabilities(userId, null, null, null);
+    }
+
+    /**
+     * Pasivos con su último valor, o los últimos {@code values} dentro de [valuesFrom, valuesTo]
+     * (ver ValuationWindow). El historial completo se pagina con listLiabilityValues.
+     */
+    @Override
+    public List<Liability> listLiabilities(Long userId, Integer values, LocalDate valuesFrom, LocalDate valuesTo) {
+        int valuesPerLiability = ValuationWindow.valuesPerItem(values, valuesFrom, valuesTo);
+
         String sql = "SELECT * FROM liabilities WHERE user_id = ?";
         List<Liability> liabilities = jdbcTemplate.query(sql, (rs, rowNum) -> mapRow(rs), userId);
 
@@ -82,10 +140,12 @@ public class LiabilityServiceUseCase implements LiabilityServicePort {
 
         // Map liability_id -> list of LiabilityValue
         Map<Long, List<LiabilityValue>> valuesMap = new HashMap<>();
-        jdbcTemplate.query(SQL_SELECT_LIABILITY_VALUES_BY_USER, rs -> {
-            LiabilityValue lv = mapLiabilityValue(rs);
-            valuesMap.computeIfAbsent(lv.getLiabilityId(), k -> new ArrayList<>()).add(lv);
-        }, userId);
+        if (valuesPerLiability > 0) {
+            jdbcTemplate.query(SQL_SELECT_LATEST_LIABILITY_VALUES_BY_USER, rs -> {
+                LiabilityValue lv = mapLiabilityValue(rs);
+                valuesMap.computeIfAbsent(lv.getLiabilityId(), k -> new ArrayList<>()).add(lv);
+            }, valuesFrom, valuesTo, valuesPerLiability, userId);
+        }
 
         for (Liability l : liabilities) {
             List<LiabilityValue> vals = valuesMap.getOrDefault(l.getLiabilityId(), new ArrayList<>());
@@ -95,6 +155,37 @@ public class LiabilityServiceUseCase implements LiabilityServicePort {
         return liabilities;
     }
 
+    /**
+     * Historial completo de valores de un pasivo, del más reciente al más antiguo, por keyset.
+     */
+    @Override
+    public LiabilityValuePage listLiabilityValues(Long userId, Long liabilityId, String cursor, Integer limit) {
+        int pageSize = TransactionKeyset.pageSize(limit, ValuationWindow.DEFAULT_PAGE_SIZE, ValuationWindow.MAX_PAGE_SIZE);
+
+        StringBuilder sql = new StringBuilder(SQL_SELECT_LIABILITY_VALUES_PAGE);
+        List<Object> params = new ArrayList<>(List.of(userId, liabilityId));
+        if (cursor != null && !cursor.isBlank()) {
+            Object[] position = TransactionKeyset.decodeCursor(cursor);
+            sql.append(" AND (lv.valuation_date, lv.value_id) < (?, ?)");
+            params.add(position[0]);
+            params.add(position[1]);
+        }
+        sql.append(" ORDER BY lv.valuation_date DESC, lv.value_id DESC LIMIT ?");
+        params.add(pageSize + 1);
+
+        List<LiabilityValue> rows = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapLiabilityValue(rs), params.toArray());
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+            LiabilityValue last = rows.get(pageSize - 1);
+            nextCursor = TransactionKeyset.encodeCursor(last.getValuationDate(), last.getLiabilityValueId());
+        }
+        return LiabilityValuePage.builder()
+                .items(rows)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
     @Override
     public Liability updateLiability(Long userId, Long liabilityId, Liability liability) {
         // Construir UPDATE dinámico solo con campos no nulos (actualización parcial)
@@ -127,6 +218,7 @@ public class LiabilityServiceUseCase implements LiabilityServicePort {
         params.add(liabilityId);
         
         jdbcTemplate.update(sql.toString(), params.toArray());
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "liability"));
         return getLiability(userId, liabilityId);
     }
 
@@ -134,19 +226,12 @@ public class LiabilityServiceUseCase implements LiabilityServicePort {
     public void deleteLiability(Long userId, Long liabilityId) {
         String sql = "DELETE FROM liabilities WHERE user_id = ? AND liability_id = ?";
         jdbcTemplate.update(sql, userId, liabilityId);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "liability"));
     }
 
     @Override
     @Transactional
     public LiabilityValue upsertLiabilityValue(Long userId, Long liabilityId, LocalDate valuationDate, Double outstandingBalance, LocalDate endDate) {
-        // Validar que el liability existe y pertenece al usuario (sin cargar valores para evitar overhead)
-        String checkSql = "SELECT liability_id FROM liabilities WHERE user_id = ? AND liability_id = ?";
-        try {
-            jdbcTemplate.queryForObject(checkSql, Long.class, userId, liabilityId);
-        } catch (DataAccessException e) {
-            throw new RuntimeException("Liability no encontrado o no pertenece al usuario");
-        }
-
         // Validar que outstandingBalance es no negativo
         if (outstandingBalance == null || outstandingBalance < 0) {
             throw new IllegalArgumentException("outstandingBalance debe ser mayor o igual a 0");
@@ -157,40 +242,84 @@ public class LiabilityServiceUseCase implements LiabilityServicePort {
             throw new IllegalArgumentException("endDate debe ser posterior o igual a valuationDate");
         }
 
-        // Buscar si ya existe un snapshot para esta fecha
-        String selectSql = "SELECT value_id FROM liability_values WHERE liability_id = ? AND valuation_date = ?";
-        Long existingValueId = null;
-        try {
-            existingValueId = jdbcTemplate.queryForObject(selectSql, Long.class, liabilityId, valuationDate);
-        } catch (Exception e) {
-            // No existe, continuar para crear
+        // Comprobación de propiedad, alta o actualización en un solo viaje (uq_liability_values_liability_date)
+        List<Long> ids = jdbcTemplate.queryForList(SQL_UPSERT_LIABILITY_VALUE, Long.class,
+                valuationDate, endDate, outstandingBalance, userId, liabilityId);
+        if (ids.isEmpty()) {
+            throw new RuntimeException("Liability no encontrado o no pertenece al usuario");
         }
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "liability"));
+
+        LiabilityValue saved = new LiabilityValue();
+        saved.setLiabilityValueId(ids.get(0));
+        saved.setLiabilityId(liabilityId);
+        saved.setValuationDate(valuationDate);
+        saved.setOutstandingBalance(outstandingBalance);
+        saved.setEndDate(endDate);
+        return saved;
+    }
 
-        if (existingValueId != null) {
-            // Actualizar existente
-            String updateSql = "UPDATE liability_values SET outstanding_balance = ?, end_date = ? WHERE value_id = ?";
-            jdbcTemplate.update(updateSql, outstandingBalance, endDate, existingValueId);
-            
-            LiabilityValue updated = new LiabilityValue();
-            updated.setLiabilityValueId(existingValueId);
-            updated.setLiabilityId(liabilityId);
-            updated.setValuationDate(valuationDate);
-            updated.setOutstandingBalance(outstandingBalance);
-            updated.setEndDate(endDate);
-            return updated;
-        } else {
-            // Insertar nuevo
-            String insertSql = "INSERT INTO liability_values (liability_id, valuation_date, end_date, outstanding_balance) VALUES (?, ?, ?, ?) RETURNING value_id";
-            Long valueId = jdbcTemplate.queryForObject(insertSql, Long.class, liabilityId, valuationDate, endDate, outstandingBalance);
-            
-            LiabilityValue created = new LiabilityValue();
-            created.setLiabilityValueId(valueId);
-            created.setLiabilityId(liabilityId);
-            created.setValuationDate(valuationDate);
-            created.setOutstandingBalance(outstandingBalance);
-            created.setEndDate(endDate);
-            return created;
+    /**
+     * Alta o actualización masiva de snapshots de varios pasivos: una comprobación de propiedad
+     * para todos los pasivos y un único INSERT ... ON CONFLICT. Si el lote repite pasivo y fecha,
+     * gana el último. Devuelve un snapshot por elemento recibido, en el mismo orden.
+     */
+    @Override
+    @Transactional
+    public List<LiabilityValue> upsertLiabilityValues(Long userId, List<CreateLiabilityValueRequest> values) {
+        if (values == null || values.isEmpty()) {
+            throw new IllegalArgumentException("El lote de snapshots está vacío");
+        }
+        if (values.size() > MAX_BULK_VALUES) {
+            throw new IllegalArgumentException("El lote admite como máximo " + MAX_BULK_VALUES + " snapshots");
+        }
+        Map<String, CreateLiabilityValueRequest> byKey = new LinkedHashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            CreateLiabilityValueRequest v = values.get(i);
+            if (v == null || v.getLiabilityId() == null || v.getValuationDate() == null) {
+                throw new IllegalArgumentException("Snapshot " + i + ": liabilityId y valuationDate son obligatorios");
+            }
+            if (v.getOutstandingBalance() == null || v.getOutstandingBalance() < 0) {
+                throw new IllegalArgumentException("Snapshot " + i + ": outstandingBalance debe ser mayor o igual a 0");
+            }
+            if (v.getEndDate() != null && v.getEndDate().isBefore(v.getValuationDate())) {
+                throw new IllegalArgumentException("Snapshot " + i + ": endDate debe ser posterior o igual a valuationDate");
+            }
+            byKey.put(v.getLiabilityId() + "|" + v.getValuationDate(), v);
         }
+
+        Set<Long> liabilityIds = new LinkedHashSet<>();
+        List<Long> liabilityColumn = new ArrayList<>(byKey.size());
+        List<LocalDate> dateColumn = new ArrayList<>(byKey.size());
+        List<LocalDate> endDateColumn = new ArrayList<>(byKey.size());
+        List<Double> balanceColumn = new ArrayList<>(byKey.size());
+        for (CreateLiabilityValueRequest v : byKey.values()) {
+            liabilityIds.add(v.getLiabilityId());
+            liabilityColumn.add(v.getLiabilityId());
+            dateColumn.add(v.getValuationDate());
+            endDateColumn.add(v.getEndDate());
+            balanceColumn.add(v.getOutstandingBalance());
+        }
+
+        Set<Long> owned = new HashSet<>(jdbcTemplate.queryForList(SQL_SELECT_OWNED_LIABILITY_IDS, Long.class,
+                userId, PgArrays.of(liabilityIds)));
+        liabilityIds.removeAll(owned);
+        if (!liabilityIds.isEmpty()) {
+            throw new RuntimeException("Liabilities no encontrados o no pertenecen al usuario: " + liabilityIds);
+        }
+
+        Map<String, LiabilityValue> saved = new HashMap<>();
+        jdbcTemplate.query(SQL_UPSERT_LIABILITY_VALUES, rs -> {
+            LiabilityValue lv = mapLiabilityValue(rs);
+            saved.put(lv.getLiabilityId() + "|" + lv.getValuationDate(), lv);
+        }, PgArrays.of(liabilityColumn), PgArrays.of(dateColumn), PgArrays.of(endDateColumn), PgArrays.of(balanceColumn));
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "liability"));
+
+        List<LiabilityValue> result = new ArrayList<>(values.size());
+        for (CreateLiabilityValueRequest v : values) {
+            result.add(saved.get(v.getLiabilityId() + "|" + v.getValuationDate()));
+        }
+        return result;
     }
 
     @Override
@@ -236,6 +365,7 @@ public class LiabilityServiceUseCase implements LiabilityServicePort {
         interest.setType(type);
         interest.setAnnualRate(annualRate);
         interest.setStartDate(startDate);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "liability"));
 
         return interest;
     }
@@ -289,6 +419,7 @@ public class LiabilityServiceUseCase implements LiabilityServicePort {
         interest.setType(type);
         interest.setAnnualRate(annualRate);
         interest.setStartDate(startDate);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "liability"));
 
         return interest;
     }
@@ -311,6 +442,7 @@ public class LiabilityServiceUseCase implements LiabilityServicePort {
         if (rowsAffected == 0) {
             throw new RuntimeException("Interés no encontrado o no pertenece al pasivo indicado");
         }
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "liability"));
     }
 
     @Override
@@ -344,58 +476,70 @@ public class LiabilityServiceUseCase implements LiabilityServicePort {
 
     @Override
     public LiabilityDetail getLiabilityDetail(Long userId, Long liabilityId) {
+        return getLiabilityDetail(userId, liabilityId, null, null);
+    }
+
+    /**
+     * Detalle de pasivo: el pasivo, su último saldo pendiente y el número de transacciones en una
+     * sola consulta, la última página de snapshots, los intereses y una página (keyset) de transacciones.
+     */
+    @Override
+    public LiabilityDetail getLiabilityDetail(Long userId, Long liabilityId, String cursor, Integer limit) {
+        int pageSize = TransactionKeyset.pageSize(limit, TransactionKeyset.DETAIL_PAGE_SIZE, TransactionKeyset.MAX_DETAIL_PAGE_SIZE);
+
+        String sqlDetail = "SELECT l.*, agg.transaction_count, l.outstanding_balance AS latest_outstanding_balance " +
+                "FROM liabilities l " +
+                "CROSS JOIN LATERAL ( " +
+                "  SELECT COUNT(*) AS transaction_count FROM transactions t " +
+                "  WHERE t.user_id = l.user_id AND t.liability_id = l.liability_id " +
+                ") agg " +
+                "WHERE l.user_id = ? AND l.liability_id = ?";
+
         // Obtener el pasivo
-        Liability liability;
+        LiabilityDetail detail;
         try {
-            liability = getLiability(userId, liabilityId);
+            detail = jdbcTemplate.queryForObject(sqlDetail, (rs, rowNum) -> {
+                Liability liability = mapRow(rs);
+                double latestBalance = rs.getDouble("latest_outstanding_balance");
+                BigDecimal currentOutstandingBalance = rs.wasNull() ? BigDecimal.ZERO : BigDecimal.valueOf(latestBalance);
+
+                // Calcular capital pagado
+                BigDecimal principalAmount = liability.getPrincipalAmount() != null ?
+                        BigDecimal.valueOf(liability.getPrincipalAmount()) : BigDecimal.ZERO;
+                BigDecimal principalPaid = principalAmount.subtract(currentOutstandingBalance);
+
+                // Calcular porcentaje de progreso
+                BigDecimal progressPercentage = principalAmount.compareTo(BigDecimal.ZERO) > 0 ?
+                        principalPaid.divide(principalAmount, 4, java.math.RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)) :
+                        BigDecimal.ZERO;
+
+                return LiabilityDetail.builder()
+                        .liability(liability)
+                        .currentOutstandingBalance(currentOutstandingBalance)
+                        .principalPaid(principalPaid)
+                        .progressPercentage(progressPercentage)
+                        .transactionCount(rs.getInt("transaction_count"))
+                        .build();
+            }, userId, liabilityId);
         } catch (DataAccessException e) {
             throw new RuntimeException("Pasivo no encontrado o no pertenece al usuario");
         }
 
-        // Obtener saldo pendiente actual (último registrado)
-        String sqlCurrentBalance = "SELECT outstanding_balance FROM liability_values WHERE liability_id = ? ORDER BY valuation_date DESC LIMIT 1";
-        BigDecimal currentOutstandingBalance = jdbcTemplate.query(sqlCurrentBalance, rs -> {
-            if (rs.next()) {
-                return BigDecimal.valueOf(rs.getDouble("outstanding_balance"));
-            }
-            return BigDecimal.ZERO;
-        }, liabilityId);
-
-        // Calcular capital pagado
-        BigDecimal principalAmount = liability.getPrincipalAmount() != null ? 
-                BigDecimal.valueOf(liability.getPrincipalAmount()) : BigDecimal.ZERO;
-        BigDecimal principalPaid = principalAmount.subtract(currentOutstandingBalance);
-
-        // Calcular porcentaje de progreso
-        BigDecimal progressPercentage = principalAmount.compareTo(BigDecimal.ZERO) > 0 ?
-                principalPaid.divide(principalAmount, 4, java.math.RoundingMode.HALF_UP).multiply(BigDecimal.valueOf(100)) :
-                BigDecimal.ZERO;
-
-        // Contar transacciones
-        String sqlCount = "SELECT COUNT(*) FROM transactions WHERE user_id = ? AND liability_id = ?";
-        Integer transactionCount = jdbcTemplate.queryForObject(sqlCount, Integer.class, userId, liabilityId);
-
-        // Obtener TODAS las transacciones (sin límite)
-        String sqlRecent = "SELECT * FROM transactions WHERE user_id = ? AND liability_id = ? ORDER BY transaction_date DESC, transaction_id DESC";
-        List<Transaction> recentTransactions = jdbcTemplate.query(sqlRecent, (rs, rowNum) -> mapTransaction(rs), userId, liabilityId);
-
-        // Obtener TODO el historial de valores (sin límite de tiempo)
-        String sqlValueHistory = "SELECT * FROM liability_values WHERE liability_id = ? ORDER BY valuation_date DESC";
-        List<LiabilityValue> valueHistory = jdbcTemplate.query(sqlValueHistory, (rs, rowNum) -> mapLiabilityValue(rs), liabilityId);
+        // Solo la última página de snapshots; los anteriores se piden a /values con el cursor
+        LiabilityValuePage values = listLiabilityValues(userId, liabilityId, null, ValuationWindow.DEFAULT_PAGE_SIZE);
+        detail.setValueHistory(values.getItems());
+        detail.setValueHistoryNextCursor(values.getNextCursor());
 
         // Obtener intereses
-        List<Interest> interests = getInterests(userId, liabilityId);
-
-        return LiabilityDetail.builder()
-                .liability(liability)
-                .currentOutstandingBalance(currentOutstandingBalance)
-                .principalPaid(principalPaid)
-                .progressPercentage(progressPercentage)
-                .transactionCount(transactionCount)
-                .recentTransactions(recentTransactions)
-                .valueHistory(valueHistory)
-                .interests(interests)
-                .build();
+        detail.setInterests(getInterests(userId, liabilityId));
+
+        // Transacciones recientes paginadas
+        StringBuilder sqlRecent = new StringBuilder("SELECT * FROM transactions WHERE user_id = ? AND liability_id = ?");
+        List<Object> params = new ArrayList<>(List.of(userId, liabilityId));
+        TransactionPage page = TransactionKeyset.fetchPage(jdbcTemplate, sqlRecent, params, cursor, pageSize, (rs, rowNum) -> mapTransaction(rs));
+        detail.setRecentTransactions(page.getItems());
+        detail.setNextCursor(page.getNextCursor());
+        return detail;
     }
 
     private Transaction mapTransaction(ResultSet rs) throws SQLException {
@@ -426,6 +570,8 @@ public class LiabilityServiceUseCase implements LiabilityServicePort {
         l.setDescription(rs.getString("description"));
         l.setPrincipalAmount(rs.getDouble("principal_amount"));
         l.setStartDate(rs.getDate("start_date") != null ? rs.getDate("start_date").toLocalDate() : null);
+        l.setOutstandingBalance(rs.getObject("outstanding_balance") != null ? rs.getDouble("outstanding_balance") : null);
+        l.setOutstandingBalanceDate(rs.getDate("outstanding_balance_date") != null ? rs.getDate("outstanding_balance_date").toLocalDate() : null);
         l.setCreatedAt(rs.getTimestamp("created_at") != null ? rs.getTimestamp("created_at").toLocalDateTime() : null);
         l.setUpdatedAt(rs.getTimestamp("updated_at") != null ? rs.getTimestamp("updated_at").toLocalDateTime() : null);
         return l;
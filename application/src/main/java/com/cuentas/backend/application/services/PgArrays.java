@@ -0,0 +1,32 @@
+package com.cuentas.backend.application.services;
+
+import java.math.BigDecimal;
+
+/**
+ * Literales de array de PostgreSQL ("{1,2,NULL}") para pasar listas como un único parámetro
+ * con cast explícito (?::int[], ?::date[], ?::numeric[]) y usarlas con ANY o unnest.
+ * Solo para números, fechas e ids: no escapa comillas ni comas.
+ */
+final class PgArrays {
+
+    private PgArrays() {
+    }
+
+    static String of(Iterable<?> values) {
+        StringBuilder sb = new StringBuilder("{");
+        boolean first = true;
+        for (Object value : values) {
+            if (!first) sb.append(',');
+            first = false;
+            if (value == null) {
+                sb.append("NULL");
+            } else if (value instanceof Double d) {
+                // Sin notación exponencial ni decimales espurios (1.0E7 -> 10000000)
+                sb.append(BigDecimal.valueOf(d).toPlainString());
+            } else {
+                sb.append(value);
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -0,0 +1,178 @@
+package com.cuentas.backend.application.services;
+
+import java.util.Arrays;
+
+/**
+ * Rentabilidad ponderada por dinero (XIRR) y por tiempo (TWR) sobre arrays primitivos.
+ * <p>
+ * Las fechas son días epoch y los flujos van desde el punto de vista del inversor: negativos
+ * cuando entra dinero en el activo (compra, gastos) y positivos cuando sale (ingresos, valor final).
+ */
+final class ReturnCalculator {
+
+    private static final double DAYS_PER_YEAR = 365.0;
+    private static final double TOLERANCE = 1e-9;
+    private static final int MAX_NEWTON_ITERATIONS = 50;
+    private static final int MAX_BRENT_ITERATIONS = 200;
+    private static final double MIN_RATE = -0.999999;
+    private static final double MAX_RATE = 1e6;
+
+    private ReturnCalculator() {
+    }
+
+    /**
+     * Tasa anual r tal que sum(amounts[i] / (1 + r)^((days[i] - days[0]) / 365)) = 0, o null si
+     * los flujos no cambian de signo o no hay raíz en (-1, 1e6). Newton desde el 10 % y, si no
+     * converge o se sale del dominio, Brent sobre un intervalo con cambio de signo.
+     */
+    static Double xirr(int[] days, double[] amounts, int count) {
+        if (count < 2) return null;
+        boolean positive = false, negative = false;
+        int first = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            positive |= amounts[i] > 0;
+            negative |= amounts[i] < 0;
+            first = Math.min(first, days[i]);
+        }
+        if (!positive || !negative) return null;
+
+        double[] years = new double[count];
+        for (int i = 0; i < count; i++) years[i] = (days[i] - first) / DAYS_PER_YEAR;
+
+        double rate = 0.1;
+        for (int iteration = 0; iteration < MAX_NEWTON_ITERATIONS; iteration++) {
+            double f = 0, df = 0;
+            for (int i = 0; i < count; i++) {
+                double discount = Math.pow(1 + rate, -years[i]);
+                f += amounts[i] * discount;
+                df -= years[i] * amounts[i] * discount / (1 + rate);
+            }
+            if (Math.abs(f) < TOLERANCE) return rate;
+            if (df == 0 || Double.isNaN(df)) break;
+            double next = rate - f / df;
+            if (!(next > MIN_RATE && next < MAX_RATE)) break;
+            if (Math.abs(next - rate) < TOLERANCE) return next;
+            rate = next;
+        }
+        return brent(years, amounts, count);
+    }
+
+    /**
+     * TWR encadenado entre valoraciones: en cada subperiodo (p[i-1], p[i]] se aplica Modified Dietz
+     * con los flujos ponderados por los días que quedan hasta el final del subperiodo. Los flujos
+     * anteriores o iguales a la primera valoración forman parte del valor inicial y se ignoran.
+     * Devuelve el factor de crecimiento (1 + TWR) o null si no hay ningún subperiodo válido.
+     */
+    static Double twrGrowth(int[] pointDays, double[] pointValues, int points,
+                            int[] flowDays, double[] flowAmounts, int flows) {
+        if (points < 2) return null;
+        double growth = 1.0;
+        boolean any = false;
+        int f = 0;
+        while (f < flows && flowDays[f] <= pointDays[0]) f++;
+        for (int i = 1; i < points; i++) {
+            int from = pointDays[i - 1];
+            int to = pointDays[i];
+            double contributions = 0, weighted = 0;
+            for (; f < flows && flowDays[f] <= to; f++) {
+                // Aportación neta al activo: el flujo del inversor con signo contrario
+                double contribution = -flowAmounts[f];
+                contributions += contribution;
+                weighted += contribution * (to - flowDays[f]) / (double) (to - from);
+            }
+            double base = pointValues[i - 1] + weighted;
+            if (base <= 0) continue;
+            growth *= 1 + (pointValues[i] - pointValues[i - 1] - contributions) / base;
+            any = true;
+        }
+        return any ? growth : null;
+    }
+
+    /**
+     * Tasa anual equivalente a un factor de crecimiento acumulado en {@code days} días.
+     */
+    static Double annualize(double growth, int days) {
+        if (days < DAYS_PER_YEAR || growth <= 0) return null;
+        return Math.pow(growth, DAYS_PER_YEAR / days) - 1;
+    }
+
+    /**
+     * Ordena por día dos arrays paralelos in situ (clave day << 32 | índice, sin objetos por elemento).
+     */
+    static void sortByDay(int[] days, double[] amounts, int count) {
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) keys[i] = ((long) days[i] << 32) | i;
+        Arrays.sort(keys);
+        int[] sortedDays = new int[count];
+        double[] sortedAmounts = new double[count];
+        for (int i = 0; i < count; i++) {
+            int index = (int) keys[i];
+            sortedDays[i] = days[index];
+            sortedAmounts[i] = amounts[index];
+        }
+        System.arraycopy(sortedDays, 0, days, 0, count);
+        System.arraycopy(sortedAmounts, 0, amounts, 0, count);
+    }
+
+    private static double npv(double[] years, double[] amounts, int count, double rate) {
+        double sum = 0;
+        for (int i = 0; i < count; i++) sum += amounts[i] * Math.pow(1 + rate, -years[i]);
+        return sum;
+    }
+
+    private static Double brent(double[] years, double[] amounts, int count) {
+        double a = MIN_RATE, b = 1.0;
+        double fa = npv(years, amounts, count, a), fb = npv(years, amounts, count, b);
+        while (fa * fb > 0 && b < MAX_RATE) {
+            b *= 4;
+            fb = npv(years, amounts, count, b);
+        }
+        if (fa * fb > 0 || Double.isNaN(fa) || Double.isNaN(fb)) return null;
+
+        double c = a, fc = fa, d = b - a, e = d;
+        for (int iteration = 0; iteration < MAX_BRENT_ITERATIONS; iteration++) {
+            if (fb * fc > 0) {
+                c = a;
+                fc = fa;
+                d = e = b - a;
+            }
+            if (Math.abs(fc) < Math.abs(fb)) {
+                a = b; b = c; c = a;
+                fa = fb; fb = fc; fc = fa;
+            }
+            double tol = 2 * Math.ulp(b) + TOLERANCE / 2;
+            double m = (c - b) / 2;
+            if (Math.abs(m) <= tol || fb == 0) return b;
+            if (Math.abs(e) >= tol && Math.abs(fa) > Math.abs(fb)) {
+                // Interpolación (secante o cuadrática inversa)
+                double s = fb / fa, p, q;
+                if (a == c) {
+                    p = 2 * m * s;
+                    q = 1 - s;
+                } else {
+                    double r = fb / fc;
+                    q = fa / fc;
+                    p = s * (2 * m * q * (q - r) - (b - a) * (r - 1));
+                    q = (q - 1) * (r - 1) * (s - 1);
+                }
+                if (p > 0) q = -q; else p = -p;
+                if (2 * p < Math.min(3 * m * q - Math.abs(tol * q), Math.abs(e * q))) {
+                    e = d;
+                    d = p / q;
+                } else {
+                    d = m;
+                    e = d;
+                }
+            } else {
+                // Bisección
+                d = m;
+                e = d;
+            }
+            a = b;
+            fa = fb;
+            b += Math.abs(d) > tol ? d : Math.copySign(tol, m);
+            fb = npv(years, amounts, count, b);
+        }
+        return b;
+    }
+}
@@ -0,0 +1,306 @@
+package com.cuentas.backend.application.services;
+
+import com.cuentas.backend.domain.CacheStats;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice en memoria, por usuario, de sumas de prefijos (árboles de Fenwick) sobre
+ * cubos diarios de user_daily_totals, por categoría y tipo y para el total del tipo.
+ * Cualquier total de un rango de fechas se responde en O(log n) sin consultar la BD.
+ * <p>
+ * El índice se construye bajo demanda y se mantiene con los deltas que aplica
+ * UserDailyTotalsService, que se trasladan al índice tras el commit. Una construcción
+ * que coincide en el tiempo con una escritura no se cachea (no se sabría si su
+ * snapshot incluye esa escritura); se usa para esa petición y se reconstruye en la siguiente.
+ */
+@Service
+public class SpendingIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SpendingIndex.class);
+
+    private static final String SQL_LOAD =
+            "SELECT day, category_id, transaction_type, total_amount FROM user_daily_totals WHERE user_id = ?";
+
+    // Margen de días hacia el futuro para que las altas habituales no obliguen a reconstruir
+    private static final int FUTURE_MARGIN_DAYS = 366;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<Long, UserIndex> cache;
+    // Solo hay entrada mientras alguien la usa (lectura construyendo o escritura en curso);
+    // la última referencia en soltarla la retira, así que el mapa no crece con cada usuario visto
+    private final Map<Long, WriteState> writeStates = new ConcurrentHashMap<>();
+
+    public SpendingIndex(JdbcTemplate jdbcTemplate,
+                         @Value("${cache.spending-index.maximum-weight-kb:131072}") long maximumWeightKb) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeightKb)
+                .weigher((Long userId, UserIndex index) -> index.weightKb())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Suma de importes del tipo indicado entre from y to (ambos incluidos).
+     * Con categoryId null suma todas las categorías.
+     */
+    public BigDecimal sum(Long userId, Long categoryId, String type, LocalDate from, LocalDate to) {
+        return BigDecimal.valueOf(index(userId).sum(categoryId, type, from, to), 2);
+    }
+
+    /**
+     * Registra deltas del rollup hechos en la transacción actual; se aplican al índice tras el commit.
+     */
+    void onDeltas(Long userId, List<Delta> deltas) {
+        afterCompletion(userId, () -> {
+            UserIndex index = cache.getIfPresent(userId);
+            if (index == null) {
+                return;
+            }
+            int series = index.seriesCount();
+            if (!index.apply(deltas)) {
+                // Fecha fuera del rango cubierto: se reconstruye en la próxima lectura
+                cache.invalidate(userId);
+            } else if (index.seriesCount() > series) {
+                // Series nuevas (categoría o tipo sin movimientos hasta ahora): el weigher solo corre al
+                // insertar, así que se reinserta la misma instancia para que cuente en maximum-weight-kb
+                cache.asMap().replace(userId, index, index);
+            }
+        });
+    }
+
+    /**
+     * El rollup del usuario se ha recalculado sin deltas (importadores, reasignación de categorías).
+     */
+    void onRebuild(Long userId) {
+        afterCompletion(userId, () -> cache.invalidate(userId));
+    }
+
+    public CacheStats getStats() {
+        com.github.benmanes.caffeine.cache.stats.CacheStats stats = cache.stats();
+        return CacheStats.builder()
+                .name("spending-index")
+                .size(cache.estimatedSize())
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .loadSuccessCount(stats.loadSuccessCount())
+                .loadFailureCount(stats.loadFailureCount())
+                .averageLoadMillis(stats.averageLoadPenalty() / 1_000_000.0)
+                .evictionCount(stats.evictionCount())
+                .build();
+    }
+
+    private UserIndex index(Long userId) {
+        UserIndex cached = cache.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+        WriteState state = acquire(userId);
+        try {
+            long stamp;
+            synchronized (state) {
+                stamp = state.stamp;
+            }
+            long start = System.nanoTime();
+            UserIndex built = build(userId);
+            synchronized (state) {
+                if (state.inFlight == 0 && state.stamp == stamp) {
+                    cache.put(userId, built);
+                    log.debug("Índice de gasto construido para user={} en {} ms", userId, (System.nanoTime() - start) / 1_000_000);
+                }
+            }
+            return built;
+        } finally {
+            release(userId);
+        }
+    }
+
+    private UserIndex build(Long userId) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(SQL_LOAD, userId);
+        LocalDate today = LocalDate.now();
+        LocalDate first = today;
+        LocalDate last = today;
+        for (Map<String, Object> row : rows) {
+            LocalDate day = ((java.sql.Date) row.get("day")).toLocalDate();
+            if (day.isBefore(first)) first = day;
+            if (day.isAfter(last)) last = day;
+        }
+        UserIndex index = new UserIndex(first, (int) ChronoUnit.DAYS.between(first, last) + 1 + FUTURE_MARGIN_DAYS);
+        for (Map<String, Object> row : rows) {
+            Number categoryId = (Number) row.get("category_id");
+            index.add(((java.sql.Date) row.get("day")).toLocalDate(),
+                    categoryId != null ? categoryId.longValue() : null,
+                    (String) row.get("transaction_type"),
+                    toCents((BigDecimal) row.get("total_amount")));
+        }
+        return index;
+    }
+
+    private void afterCompletion(Long userId, Runnable onCommit) {
+        WriteState state = acquire(userId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                synchronized (state) {
+                    state.stamp++;
+                    cache.invalidate(userId);
+                }
+            } finally {
+                release(userId);
+            }
+            return;
+        }
+        synchronized (state) {
+            state.inFlight++;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    synchronized (state) {
+                        state.inFlight--;
+                        state.stamp++;
+                        if (status == STATUS_COMMITTED) {
+                            onCommit.run();
+                        }
+                    }
+                } finally {
+                    release(userId);
+                }
+            }
+        });
+    }
+
+    private WriteState acquire(Long userId) {
+        return writeStates.compute(userId, (k, state) -> {
+            WriteState s = state != null ? state : new WriteState();
+            synchronized (s) {
+                s.references++;
+            }
+            return s;
+        });
+    }
+
+    private void release(Long userId) {
+        writeStates.computeIfPresent(userId, (k, state) -> {
+            synchronized (state) {
+                return --state.references == 0 ? null : state;
+            }
+        });
+    }
+
+    static long toCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    record Delta(LocalDate day, Long categoryId, String type, long cents) {
+    }
+
+    private static final class WriteState {
+        private int inFlight;
+        private long stamp;
+        private int references;
+    }
+
+    private record SeriesKey(Long categoryId, String type) {
+    }
+
+    /**
+     * Índice de un usuario: un árbol de Fenwick por (categoría, tipo) y otro por tipo.
+     * La posición i corresponde al día base + i.
+     */
+    private static final class UserIndex {
+        private final LocalDate base;
+        private final int size;
+        private final Map<SeriesKey, FenwickTree> byCategory = new HashMap<>();
+        private final Map<String, FenwickTree> byType = new HashMap<>();
+
+        private UserIndex(LocalDate base, int size) {
+            this.base = base;
+            this.size = size;
+        }
+
+        private synchronized boolean apply(List<Delta> deltas) {
+            for (Delta d : deltas) {
+                long offset = ChronoUnit.DAYS.between(base, d.day());
+                if (offset < 0 || offset >= size) {
+                    return false;
+                }
+            }
+            for (Delta d : deltas) {
+                add(d.day(), d.categoryId(), d.type(), d.cents());
+            }
+            return true;
+        }
+
+        private synchronized void add(LocalDate day, Long categoryId, String type, long cents) {
+            int position = (int) ChronoUnit.DAYS.between(base, day);
+            byCategory.computeIfAbsent(new SeriesKey(categoryId, type), k -> new FenwickTree(size)).add(position, cents);
+            byType.computeIfAbsent(type, k -> new FenwickTree(size)).add(position, cents);
+        }
+
+        private synchronized long sum(Long categoryId, String type, LocalDate from, LocalDate to) {
+            FenwickTree tree = categoryId == null ? byType.get(type) : byCategory.get(new SeriesKey(categoryId, type));
+            if (tree == null) {
+                return 0L;
+            }
+            long fromOffset = Math.max(ChronoUnit.DAYS.between(base, from), 0);
+            long toOffset = Math.min(ChronoUnit.DAYS.between(base, to), size - 1L);
+            if (fromOffset > toOffset) {
+                return 0L;
+            }
+            return tree.prefix((int) toOffset) - (fromOffset > 0 ? tree.prefix((int) fromOffset - 1) : 0L);
+        }
+
+        private synchronized int seriesCount() {
+            return byCategory.size() + byType.size();
+        }
+
+        private synchronized int weightKb() {
+            // 8 bytes por posición y árbol
+            return (int) Math.max(1, (long) seriesCount() * size / 128);
+        }
+    }
+
+    /**
+     * Árbol de Fenwick (binary indexed tree) sobre importes en céntimos.
+     */
+    private static final class FenwickTree {
+        private final long[] tree;
+
+        private FenwickTree(int size) {
+            this.tree = new long[size + 1];
+        }
+
+        private void add(int position, long delta) {
+            for (int i = position + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        private long prefix(int position) {
+            long sum = 0;
+            for (int i = position + 1; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+    }
+}
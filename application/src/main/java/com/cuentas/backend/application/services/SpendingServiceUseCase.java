@@ -0,0 +1,41 @@
+package com.cuentas.backend.application.services;
+
+import com.cuentas.backend.application.ports.driving.SpendingServicePort;
+import com.cuentas.backend.domain.SpendingRangeTotal;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Totales por rango de fechas arbitrario (semanas, últimos 30 días, periodos a medida)
+ * servidos desde el índice en memoria {@link SpendingIndex}.
+ */
+@Service
+public class SpendingServiceUseCase implements SpendingServicePort {
+
+    private static final Set<String> VALID_TYPES = Set.of("income", "expense", "neutral");
+
+    private final SpendingIndex spendingIndex;
+
+    public SpendingServiceUseCase(SpendingIndex spendingIndex) {
+        this.spendingIndex = spendingIndex;
+    }
+
+    @Override
+    public SpendingRangeTotal getRangeTotal(Long userId, Long categoryId, String type, LocalDate startDate, LocalDate endDate) {
+        if (type == null || !VALID_TYPES.contains(type)) {
+            throw new IllegalArgumentException("type debe ser income, expense o neutral");
+        }
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("startDate y endDate son obligatorias y startDate no puede ser posterior a endDate");
+        }
+        return SpendingRangeTotal.builder()
+                .categoryId(categoryId)
+                .type(type)
+                .startDate(startDate)
+                .endDate(endDate)
+                .total(spendingIndex.sum(userId, categoryId, type, startDate, endDate))
+                .build();
+    }
+}
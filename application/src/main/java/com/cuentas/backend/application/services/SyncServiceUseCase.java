@@ -0,0 +1,222 @@
+package com.cuentas.backend.application.services;
+
+import com.cuentas.backend.application.ports.driving.SyncServicePort;
+import com.cuentas.backend.domain.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Sincronización incremental para clientes móviles.
+ * <p>
+ * La marca de agua es el xmin del snapshot con el que se leen los datos (ver
+ * V1.0.7__add-sync-tracking.sql). Todas las consultas se hacen en una única
+ * transacción REPEATABLE READ para que vean exactamente ese snapshot.
+ */
+@Service
+public class SyncServiceUseCase implements SyncServicePort {
+
+    private static final Logger log = LoggerFactory.getLogger(SyncServiceUseCase.class);
+
+    private static final String WATERMARK_PREFIX = "x1:";
+
+    private static final String SQL_SNAPSHOT_XMIN =
+            "SELECT pg_snapshot_xmin(pg_current_snapshot())::text";
+
+    private static final String SQL_CATEGORIES =
+            "SELECT * FROM categories WHERE user_id = ?";
+
+    private static final String SQL_ASSETS =
+            "SELECT * FROM assets WHERE user_id = ?";
+
+    private static final String SQL_ASSET_VALUES =
+            "SELECT av.* FROM asset_values av JOIN assets a ON av.asset_id = a.asset_id WHERE a.user_id = ?";
+
+    private static final String SQL_LIABILITIES =
+            "SELECT * FROM liabilities WHERE user_id = ?";
+
+    private static final String SQL_LIABILITY_VALUES =
+            "SELECT lv.* FROM liability_values lv JOIN liabilities l ON lv.liability_id = l.liability_id WHERE l.user_id = ?";
+
+    private static final String SQL_TRANSACTIONS =
+            "SELECT * FROM transactions WHERE user_id = ?";
+
+    private static final String SQL_TOMBSTONES =
+            "SELECT entity, entity_id FROM sync_tombstones WHERE user_id = ? AND sync_xid >= ?::xid8 ORDER BY tombstone_id";
+
+    // Mayor sync_xid de las lápidas ya borradas por SyncTombstoneRetention
+    private static final String SQL_PRUNED_THROUGH =
+            "SELECT pruned_through_xid FROM sync_retention WHERE id = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SyncServiceUseCase(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public SyncDelta getChangesSince(Long userId, String watermark) {
+        String since = watermark == null || watermark.isBlank() ? null : decodeWatermark(watermark);
+
+        // Debe ser la primera consulta: fija el snapshot de toda la transacción
+        String xmin = jdbcTemplate.queryForObject(SQL_SNAPSHOT_XMIN, String.class);
+
+        // Marca de agua anterior a la retención de lápidas: pueden faltar borrados, se envía todo
+        if (since != null && Long.compareUnsigned(Long.parseUnsignedLong(since), prunedThrough()) <= 0) {
+            log.info("Marca de agua de user={} anterior a la retención de lápidas ({}): sincronización completa", userId, since);
+            since = null;
+        }
+
+        SyncDelta delta = SyncDelta.builder()
+                .watermark(encodeWatermark(xmin))
+                .fullSync(since == null)
+                .categories(query(SQL_CATEGORIES, "sync_xid", since, this::mapCategory, userId))
+                .assets(query(SQL_ASSETS, "sync_xid", since, this::mapAsset, userId))
+                .assetValues(query(SQL_ASSET_VALUES, "av.sync_xid", since, this::mapAssetValue, userId))
+                .liabilities(query(SQL_LIABILITIES, "sync_xid", since, this::mapLiability, userId))
+                .liabilityValues(query(SQL_LIABILITY_VALUES, "lv.sync_xid", since, this::mapLiabilityValue, userId))
+                .transactions(query(SQL_TRANSACTIONS, "sync_xid", since, this::mapTransaction, userId))
+                .deleted(since == null ? List.of() : jdbcTemplate.query(SQL_TOMBSTONES, (rs, rowNum) ->
+                        SyncDelta.Deleted.builder()
+                                .entity(rs.getString("entity"))
+                                .id(rs.getLong("entity_id"))
+                                .build(), userId, since))
+                .build();
+
+        log.info("Sync para user={} desde {}: {} categorías, {} activos, {} valores de activos, {} pasivos, {} valores de pasivos, {} transacciones, {} borrados",
+                userId, since == null ? "inicio" : since,
+                delta.getCategories().size(), delta.getAssets().size(), delta.getAssetValues().size(),
+                delta.getLiabilities().size(), delta.getLiabilityValues().size(),
+                delta.getTransactions().size(), delta.getDeleted().size());
+        return delta;
+    }
+
+    private long prunedThrough() {
+        List<Long> rows = jdbcTemplate.queryForList(SQL_PRUNED_THROUGH, Long.class);
+        return rows.isEmpty() || rows.get(0) == null ? 0L : rows.get(0);
+    }
+
+    private <T> List<T> query(String baseSql, String xidColumn, String since, RowMapper<T> mapper, Long userId) {
+        if (since == null) {
+            return jdbcTemplate.query(baseSql, mapper, userId);
+        }
+        return jdbcTemplate.query(baseSql + " AND " + xidColumn + " >= ?::xid8", mapper, userId, since);
+    }
+
+    private String encodeWatermark(String xmin) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((WATERMARK_PREFIX + xmin).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String decodeWatermark(String watermark) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(watermark), StandardCharsets.UTF_8);
+            if (!raw.startsWith(WATERMARK_PREFIX)) {
+                throw new IllegalArgumentException("watermark no válido");
+            }
+            // Validar que es un xid numérico antes de enviarlo a la consulta
+            return Long.toUnsignedString(Long.parseUnsignedLong(raw.substring(WATERMARK_PREFIX.length())));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("watermark no válido", e);
+        }
+    }
+
+    // =======================
+    // RowMappers
+    // =======================
+
+    private Category mapCategory(ResultSet rs, int rowNum) throws SQLException {
+        Category c = new Category();
+        c.setCategoryId(rs.getLong("category_id"));
+        c.setUserId(rs.getLong("user_id"));
+        c.setName(rs.getString("name"));
+        c.setDescription(rs.getString("description"));
+        Long parentId = rs.getLong("parent_category_id");
+        c.setParentCategoryId(rs.wasNull() ? null : parentId);
+        c.setCreatedAt(rs.getTimestamp("created_at") != null ? rs.getTimestamp("created_at").toLocalDateTime() : null);
+        c.setUpdatedAt(rs.getTimestamp("updated_at") != null ? rs.getTimestamp("updated_at").toLocalDateTime() : null);
+        return c;
+    }
+
+    private Asset mapAsset(ResultSet rs, int rowNum) throws SQLException {
+        Asset asset = new Asset();
+        asset.setAssetId(rs.getLong("asset_id"));
+        asset.setUserId(rs.getLong("user_id"));
+        asset.setAssetTypeId(rs.getLong("asset_type_id"));
+        asset.setName(rs.getString("name"));
+        asset.setDescription(rs.getString("description"));
+        asset.setAcquisitionDate(rs.getDate("acquisition_date") != null ? rs.getDate("acquisition_date").toLocalDate() : null);
+        asset.setAcquisitionValue(rs.getDouble("acquisition_value"));
+        asset.setOwnershipPercentage(rs.getDouble("ownership_percentage"));
+        asset.setIsPrimary(rs.getBoolean("is_primary"));
+        asset.setCurrentValue(rs.getObject("current_value") != null ? rs.getDouble("current_value") : null);
+        asset.setCurrentValueDate(rs.getDate("current_value_date") != null ? rs.getDate("current_value_date").toLocalDate() : null);
+        return asset;
+    }
+
+    private AssetValue mapAssetValue(ResultSet rs, int rowNum) throws SQLException {
+        AssetValue av = new AssetValue();
+        av.setAssetValueId(rs.getLong("value_id"));
+        av.setAssetId(rs.getLong("asset_id"));
+        java.sql.Date vd = rs.getDate("valuation_date");
+        av.setValuationDate(vd != null ? vd.toLocalDate() : null);
+        av.setCurrentValue(rs.getDouble("current_value"));
+        return av;
+    }
+
+    private Liability mapLiability(ResultSet rs, int rowNum) throws SQLException {
+        Liability l = new Liability();
+        l.setLiabilityId(rs.getLong("liability_id"));
+        l.setUserId(rs.getLong("user_id"));
+        l.setLiabilityTypeId(rs.getLong("liability_type_id"));
+        l.setName(rs.getString("name"));
+        l.setDescription(rs.getString("description"));
+        l.setPrincipalAmount(rs.getDouble("principal_amount"));
+        l.setStartDate(rs.getDate("start_date") != null ? rs.getDate("start_date").toLocalDate() : null);
+        l.setOutstandingBalance(rs.getObject("outstanding_balance") != null ? rs.getDouble("outstanding_balance") : null);
+        l.setOutstandingBalanceDate(rs.getDate("outstanding_balance_date") != null ? rs.getDate("outstanding_balance_date").toLocalDate() : null);
+        l.setCreatedAt(rs.getTimestamp("created_at") != null ? rs.getTimestamp("created_at").toLocalDateTime() : null);
+        l.setUpdatedAt(rs.getTimestamp("updated_at") != null ? rs.getTimestamp("updated_at").toLocalDateTime() : null);
+        return l;
+    }
+
+    private LiabilityValue mapLiabilityValue(ResultSet rs, int rowNum) throws SQLException {
+        LiabilityValue lv = new LiabilityValue();
+        lv.setLiabilityValueId(rs.getLong("value_id"));
+        lv.setLiabilityId(rs.getLong("liability_id"));
+        java.sql.Date vd = rs.getDate("valuation_date");
+        lv.setValuationDate(vd != null ? vd.toLocalDate() : null);
+        java.sql.Date ed = rs.getDate("end_date");
+        lv.setEndDate(ed != null ? ed.toLocalDate() : null);
+        lv.setOutstandingBalance(rs.getDouble("outstanding_balance"));
+        return lv;
+    }
+
+    private Transaction mapTransaction(ResultSet rs, int rowNum) throws SQLException {
+        Transaction t = new Transaction();
+        t.setTransactionId(rs.getLong("transaction_id"));
+        t.setUserId(rs.getLong("user_id"));
+        t.setCategoryId(rs.getObject("category_id") != null ? rs.getLong("category_id") : null);
+        t.setAssetId(rs.getObject("asset_id") != null ? rs.getLong("asset_id") : null);
+        t.setLiabilityId(rs.getObject("liability_id") != null ? rs.getLong("liability_id") : null);
+        t.setRelatedAssetId(rs.getObject("related_asset_id") != null ? rs.getLong("related_asset_id") : null);
+        t.setAmount(rs.getDouble("amount"));
+        t.setTransactionDate(rs.getDate("transaction_date") != null ? rs.getDate("transaction_date").toLocalDate() : null);
+        t.setDescription(rs.getString("description"));
+        t.setType(rs.getString("transaction_type"));
+        t.setCreatedAt(rs.getTimestamp("created_at") != null ? rs.getTimestamp("created_at").toLocalDateTime() : null);
+        t.setUpdatedAt(rs.getTimestamp("updated_at") != null ? rs.getTimestamp("updated_at").toLocalDateTime() : null);
+        return t;
+    }
+}
@@ -0,0 +1,62 @@
+package com.cuentas.backend.application.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Borra las lápidas de sync_tombstones más antiguas que la retención configurada, por lotes.
+ * <p>
+ * Cada lote avanza en la misma sentencia sync_retention.pruned_through_xid (el mayor sync_xid
+ * borrado); SyncServiceUseCase responde con una sincronización completa a las marcas de agua
+ * que no lo superan, porque podrían haber perdido algún borrado.
+ */
+@Service
+public class SyncTombstoneRetention {
+
+    private static final Logger log = LoggerFactory.getLogger(SyncTombstoneRetention.class);
+
+    private static final String SQL_PRUNE_BATCH =
+            "WITH pruned AS ( " +
+                    "  DELETE FROM sync_tombstones WHERE tombstone_id IN ( " +
+                    "    SELECT tombstone_id FROM sync_tombstones " +
+                    "    WHERE deleted_at < NOW() - make_interval(days => ?) " +
+                    "    ORDER BY tombstone_id LIMIT ?) " +
+                    "  RETURNING sync_xid " +
+                    ") " +
+                    "UPDATE sync_retention SET " +
+                    "  pruned_through_xid = GREATEST(pruned_through_xid, (SELECT MAX(sync_xid::text::bigint) FROM pruned)), " +
+                    "  pruned_at = NOW() " +
+                    "WHERE id = 1 AND EXISTS (SELECT 1 FROM pruned) " +
+                    "RETURNING (SELECT COUNT(*) FROM pruned)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int retentionDays;
+    private final int batchSize;
+
+    public SyncTombstoneRetention(JdbcTemplate jdbcTemplate,
+                                  @Value("${sync.tombstones.retention-days:90}") int retentionDays,
+                                  @Value("${sync.tombstones.prune-batch-size:5000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retentionDays = retentionDays;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${sync.tombstones.prune-cron:0 30 3 * * *}")
+    public void prune() {
+        long total = 0;
+        while (true) {
+            // Cada lote es una transacción corta (autocommit)
+            Long pruned = jdbcTemplate.query(SQL_PRUNE_BATCH, rs -> rs.next() ? rs.getLong(1) : 0L,
+                    retentionDays, batchSize);
+            total += pruned;
+            if (pruned < batchSize) break;
+        }
+        if (total > 0) {
+            log.info("Lápidas de sincronización anteriores a {} días borradas: {}", retentionDays, total);
+        }
+    }
+}
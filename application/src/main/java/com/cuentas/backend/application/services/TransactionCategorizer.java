@@ -0,0 +1,352 @@
+package com.cuentas.backend.application.services;
+
+import com.cuentas.backend.application.events.UserDataChangedEvent;
+import com.cuentas.backend.domain.CategorySuggestion;
+import com.cuentas.backend.domain.Transaction;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Clasificador de categorías por usuario a partir de la descripción (Naive Bayes multinomial).
+ * <p>
+ * Se entrena con los pares (descripción, categoría) más recientes del usuario en una sola
+ * consulta y después aprende de forma incremental de cada alta o corrección confirmada.
+ * Los tokens se guardan como hash de 64 bits y los contadores en tablas hash de claves
+ * primitivas, así que clasificar una fila no reserva objetos por token ni va a la base de datos.
+ * Se invalida tras cambios de categorías o importaciones.
+ */
+@Service
+public class TransactionCategorizer {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionCategorizer.class);
+
+    private static final Set<String> INVALIDATING_ENTITIES = Set.of("category", "import");
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MAX_TOKENS = 32;
+
+    private static final String SQL_TRAINING =
+            "SELECT t.description, t.category_id, t.transaction_type FROM transactions t " +
+                    "JOIN categories c ON c.category_id = t.category_id AND c.user_id = t.user_id " +
+                    "WHERE t.user_id = ? AND t.description IS NOT NULL AND t.description <> '' " +
+                    "ORDER BY t.transaction_date DESC, t.transaction_id DESC " +
+                    "LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<Long, Model> cache;
+    private final int trainingRows;
+    private final double minConfidence;
+
+    public TransactionCategorizer(JdbcTemplate jdbcTemplate,
+                                  @Value("${categorizer.maximum-size:1000}") long maximumSize,
+                                  @Value("${categorizer.expire-after-access-seconds:3600}") long expireAfterAccessSeconds,
+                                  @Value("${categorizer.training-rows:20000}") int trainingRows,
+                                  @Value("${categorizer.min-confidence:0.6}") double minConfidence) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.trainingRows = trainingRows;
+        this.minConfidence = minConfidence;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(Duration.ofSeconds(expireAfterAccessSeconds))
+                .build();
+    }
+
+    /**
+     * Mejor categoría para una descripción, o null si no hay texto o el usuario no tiene histórico.
+     */
+    public CategorySuggestion suggest(Long userId, String description, String type) {
+        long[] tokens = tokenize(description, type);
+        if (tokens.length == 0) return null;
+        return cache.get(userId, this::train).classify(tokens, textTokenCount(tokens, type));
+    }
+
+    /**
+     * Asigna categoría a las transacciones que llegan sin ella cuando la confianza supera
+     * categorizer.min-confidence. Devuelve cuántas se han asignado.
+     */
+    public int assignMissing(Long userId, List<Transaction> transactions) {
+        Model model = null;
+        int assigned = 0;
+        for (Transaction t : transactions) {
+            if (t.getCategoryId() != null) continue;
+            long[] tokens = tokenize(t.getDescription(), t.getType());
+            if (tokens.length == 0) continue;
+            if (model == null) model = cache.get(userId, this::train);
+            CategorySuggestion suggestion = model.classify(tokens, textTokenCount(tokens, t.getType()));
+            if (suggestion != null && suggestion.getConfidence() >= minConfidence) {
+                t.setCategoryId(suggestion.getCategoryId());
+                assigned++;
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * Aprende de transacciones con categoría tras el commit. Si el modelo del usuario no
+     * está en memoria no se hace nada: el siguiente entrenamiento ya las leerá de la tabla.
+     */
+    public void learn(Long userId, List<Transaction> transactions) {
+        Runnable task = () -> {
+            Model model = cache.getIfPresent(userId);
+            if (model == null) return;
+            for (Transaction t : transactions) {
+                if (t.getCategoryId() == null) continue;
+                long[] tokens = tokenize(t.getDescription(), t.getType());
+                if (tokens.length > 0) model.learn(tokens, t.getCategoryId());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserDataChanged(UserDataChangedEvent event) {
+        if (INVALIDATING_ENTITIES.contains(event.getEntity())) {
+            cache.invalidate(event.getUserId());
+        }
+    }
+
+    private Model train(Long userId) {
+        long start = System.currentTimeMillis();
+        Model model = new Model();
+        int[] rows = {0};
+        jdbcTemplate.query(SQL_TRAINING, rs -> {
+            long[] tokens = tokenize(rs.getString("description"), rs.getString("transaction_type"));
+            if (tokens.length > 0) {
+                model.learn(tokens, rs.getLong("category_id"));
+                rows[0]++;
+            }
+        }, userId, trainingRows);
+        log.info("Clasificador de categorías entrenado para user={}: {} filas, {} categorías en {} ms",
+                userId, rows[0], model.categoryCount, System.currentTimeMillis() - start);
+        return model;
+    }
+
+    // =======================
+    // Tokenización
+    // =======================
+
+    // tokenize añade el token del tipo al final cuando hay tipo
+    private static int textTokenCount(long[] tokens, String type) {
+        return type != null ? tokens.length - 1 : tokens.length;
+    }
+
+    /**
+     * Hashes de las palabras de la descripción (minúsculas, sin acentos, sin números puros)
+     * más un token con el tipo de movimiento.
+     */
+    static long[] tokenize(String description, String type) {
+        if (description == null || description.isBlank()) return new long[0];
+        String text = Normalizer.normalize(description.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        long[] tokens = new long[MAX_TOKENS + 1];
+        int count = 0;
+        int i = 0;
+        int n = text.length();
+        while (i < n && count < MAX_TOKENS) {
+            while (i < n && !Character.isLetterOrDigit(text.charAt(i))) i++;
+            long hash = 0xcbf29ce484222325L;
+            int length = 0;
+            boolean hasLetter = false;
+            while (i < n) {
+                char ch = text.charAt(i);
+                if (Character.getType(ch) == Character.NON_SPACING_MARK) {
+                    i++;
+                    continue;
+                }
+                if (!Character.isLetterOrDigit(ch)) break;
+                hasLetter |= Character.isLetter(ch);
+                hash = (hash ^ ch) * 0x100000001b3L;
+                length++;
+                i++;
+            }
+            if (length >= MIN_TOKEN_LENGTH && hasLetter) {
+                tokens[count++] = hash;
+            }
+        }
+        if (count == 0) return new long[0];
+        if (type != null) {
+            long hash = 0x84222325cbf29ce4L;
+            for (int j = 0; j < type.length(); j++) hash = (hash ^ type.charAt(j)) * 0x100000001b3L;
+            tokens[count++] = hash;
+        }
+        return Arrays.copyOf(tokens, count);
+    }
+
+    // =======================
+    // Modelo
+    // =======================
+
+    /**
+     * Contadores del modelo. Las categorías se indexan en orden de aparición; los
+     * contadores (token, categoría) comparten una única tabla con clave token * 31 + índice.
+     */
+    private static final class Model {
+        private long[] categoryIds = new long[16];
+        private int[] documents = new int[16];
+        private int[] tokenTotals = new int[16];
+        private int categoryCount;
+        private int totalDocuments;
+        private final LongIntMap categoryIndex = new LongIntMap(16);
+        private final LongIntMap tokenCategoryCounts = new LongIntMap(1024);
+        private final LongIntMap vocabulary = new LongIntMap(512);
+
+        synchronized void learn(long[] tokens, long categoryId) {
+            int index = categoryIndex.get(categoryId, -1);
+            if (index < 0) {
+                index = categoryCount++;
+                if (index == categoryIds.length) {
+                    categoryIds = Arrays.copyOf(categoryIds, index * 2);
+                    documents = Arrays.copyOf(documents, index * 2);
+                    tokenTotals = Arrays.copyOf(tokenTotals, index * 2);
+                }
+                categoryIds[index] = categoryId;
+                categoryIndex.put(categoryId, index);
+            }
+            documents[index]++;
+            totalDocuments++;
+            for (long token : tokens) {
+                tokenCategoryCounts.increment(key(token, index));
+                vocabulary.increment(token);
+                tokenTotals[index]++;
+            }
+        }
+
+        /**
+         * Los primeros {@code textTokens} tokens son palabras de la descripción; el resto, el tipo.
+         * Sin ninguna palabra conocida no hay evidencia textual (solo el prior y el tipo) y no se sugiere nada.
+         */
+        synchronized CategorySuggestion classify(long[] tokens, int textTokens) {
+            if (categoryCount == 0) return null;
+            boolean knownWord = false;
+            for (int i = 0; i < textTokens && !knownWord; i++) {
+                knownWord = vocabulary.get(tokens[i], 0) > 0;
+            }
+            if (!knownWord) return null;
+            double vocabularySize = Math.max(1, vocabulary.size());
+            double best = Double.NEGATIVE_INFINITY;
+            int bestIndex = -1;
+            double[] scores = new double[categoryCount];
+            for (int c = 0; c < categoryCount; c++) {
+                double score = Math.log((double) documents[c] / totalDocuments);
+                double denominator = tokenTotals[c] + vocabularySize;
+                for (long token : tokens) {
+                    // Tokens nunca vistos no aportan información: se ignoran para todas las categorías
+                    if (vocabulary.get(token, 0) == 0) continue;
+                    score += Math.log((tokenCategoryCounts.get(key(token, c), 0) + 1) / denominator);
+                }
+                scores[c] = score;
+                if (score > best) {
+                    best = score;
+                    bestIndex = c;
+                }
+            }
+            // Probabilidad normalizada (softmax) de la mejor categoría
+            double sum = 0;
+            for (double score : scores) sum += Math.exp(score - best);
+            return CategorySuggestion.builder()
+                    .categoryId(categoryIds[bestIndex])
+                    .confidence(1.0 / sum)
+                    .build();
+        }
+
+        private static long key(long token, int categoryIndex) {
+            return token * 31 + categoryIndex;
+        }
+    }
+
+    /**
+     * Tabla hash long → int con direccionamiento abierto (sondeo lineal), sin objetos por entrada.
+     * La clave 0 se reserva como hueco libre y se desplaza a 1 (colisión aceptable en un hash).
+     */
+    private static final class LongIntMap {
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        LongIntMap(int capacity) {
+            int n = Integer.highestOneBit(Math.max(4, capacity) - 1) << 1;
+            keys = new long[n];
+            values = new int[n];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(long key, int defaultValue) {
+            key = key == 0 ? 1 : key;
+            int mask = keys.length - 1;
+            for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+                if (keys[i] == 0) return defaultValue;
+            }
+        }
+
+        void put(long key, int value) {
+            key = key == 0 ? 1 : key;
+            int i = slot(key);
+            if (keys[i] == 0) {
+                keys[i] = key;
+                if (++size * 4 > keys.length * 3) {
+                    values[i] = value;
+                    resize();
+                    return;
+                }
+            }
+            values[i] = value;
+        }
+
+        void increment(long key) {
+            key = key == 0 ? 1 : key;
+            put(key, get(key, 0) + 1);
+        }
+
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int i = mix(key) & mask;
+            while (keys[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+            return i;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int j = slot(oldKeys[i]);
+                    keys[j] = oldKeys[i];
+                    values[j] = oldValues[i];
+                }
+            }
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.cuentas.backend.application.services;
+
+import com.cuentas.backend.domain.Transaction;
+import com.cuentas.backend.domain.TransactionPage;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Paginación por keyset de transacciones en orden (transaction_date DESC, transaction_id DESC).
+ * El cursor es opaco para el cliente: base64url de "fecha|id" de la última fila devuelta.
+ */
+final class TransactionKeyset {
+
+    // Tamaño de página de las transacciones recientes en las vistas de detalle
+    static final int DETAIL_PAGE_SIZE = 20;
+    static final int MAX_DETAIL_PAGE_SIZE = 100;
+
+    private TransactionKeyset() {
+    }
+
+    /**
+     * Completa la consulta (que debe terminar en una cláusula WHERE) con la posición del cursor,
+     * el orden y el límite, y devuelve la página con el cursor de la siguiente si la hay.
+     */
+    static TransactionPage fetchPage(JdbcTemplate jdbcTemplate, StringBuilder sql, List<Object> params,
+                                     String cursor, int pageSize, RowMapper<Transaction> mapper) {
+        // Keyset: continuar estrictamente después de la última fila de la página anterior
+        if (cursor != null && !cursor.isBlank()) {
+            Object[] position = decodeCursor(cursor);
+            sql.append(" AND (transaction_date, transaction_id) < (?, ?)");
+            params.add(position[0]);
+            params.add(position[1]);
+        }
+
+        // Se pide una fila de más para saber si existe página siguiente
+        sql.append(" ORDER BY transaction_date DESC, transaction_id DESC LIMIT ?");
+        params.add(pageSize + 1);
+
+        List<Transaction> rows = jdbcTemplate.query(sql.toString(), mapper, params.toArray());
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = new ArrayList<>(rows.subList(0, pageSize));
+            Transaction last = rows.get(pageSize - 1);
+            nextCursor = encodeCursor(last.getTransactionDate(), last.getTransactionId());
+        }
+
+        return TransactionPage.builder()
+                .items(rows)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    static int pageSize(Integer limit, int defaultSize, int maxSize) {
+        int pageSize = limit == null ? defaultSize : limit;
+        if (pageSize < 1 || pageSize > maxSize) {
+            throw new IllegalArgumentException("limit debe estar entre 1 y " + maxSize);
+        }
+        return pageSize;
+    }
+
+    static String encodeCursor(LocalDate transactionDate, Long transactionId) {
+        String raw = transactionDate + "|" + transactionId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Object[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("cursor no válido");
+            }
+            return new Object[]{LocalDate.parse(parts[0]), Long.parseLong(parts[1])};
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("cursor no válido", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.cuentas.backend.application.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Crea por adelantado las particiones anuales de transactions (ver V1.0.8) para el año en curso
+ * y los {@code transactions.partitions.years-ahead} siguientes, al arrancar y una vez al mes.
+ * Así las altas, importaciones y fusiones de un año nuevo nunca caen en transactions_default,
+ * que no se beneficia de la poda de particiones y obligaría después a mover las filas con bloqueo.
+ */
+@Service
+public class TransactionPartitionMaintenance {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionPartitionMaintenance.class);
+
+    private static final String SQL_ENSURE_TRANSACTIONS_PARTITION =
+            "SELECT ensure_transactions_partition(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int yearsAhead;
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    public TransactionPartitionMaintenance(JdbcTemplate jdbcTemplate,
+                                           @Value("${transactions.partitions.years-ahead:2}") int yearsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.yearsAhead = yearsAhead;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void onStartup() {
+        if (started.compareAndSet(false, true)) {
+            ensureUpcomingPartitions();
+        }
+    }
+
+    @Scheduled(cron = "${transactions.partitions.cron:0 15 2 1 * *}")
+    public void ensureUpcomingPartitions() {
+        int currentYear = LocalDate.now().getYear();
+        for (int year = currentYear; year <= currentYear + yearsAhead; year++) {
+            try {
+                // Idempotente: si la partición ya existe no hace nada
+                jdbcTemplate.queryForList(SQL_ENSURE_TRANSACTIONS_PARTITION, year);
+            } catch (DataAccessException e) {
+                // Otra instancia puede estar creándola a la vez; se reintenta en la siguiente ejecución
+                log.warn("No se pudo asegurar la partición de transacciones de {}: {}", year, e.getMessage());
+            }
+        }
+        log.debug("Particiones de transacciones aseguradas hasta {}", currentYear + yearsAhead);
+    }
+}
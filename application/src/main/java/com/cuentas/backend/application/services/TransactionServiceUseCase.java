@@ -1,26 +1,125 @@
 package com.cuentas.backend.application.services;
 
 import com.cuentas.backend.application.ports.driving.TransactionServicePort;
+import com.cuentas.backend.domain.BulkTransactionResult;
+import com.cuentas.backend.domain.CategorySuggestion;
 import com.cuentas.backend.domain.Transaction;
+import com.cuentas.backend.domain.TransactionPage;
+import com.cuentas.backend.domain.TransactionSearchHit;
+import com.cuentas.backend.domain.TransactionSearchPage;
+import com.cuentas.backend.application.events.UserDataChangedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class TransactionServiceUseCase implements TransactionServicePort {
 
+    private static final Logger log = LoggerFactory.getLogger(TransactionServiceUseCase.class);
+
     private final JdbcTemplate jdbcTemplate;
+    private final UserDailyTotalsService dailyTotalsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionCategorizer categorizer;
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final int MAX_BULK_SIZE = 10000;
+    private static final int BULK_BATCH_SIZE = 1000;
+    private static final Set<String> VALID_TYPES = Set.of("income", "expense", "neutral");
+    private static final int DEFAULT_SEARCH_SIZE = 20;
+    private static final int MAX_SEARCH_SIZE = 100;
+    private static final int MAX_SEARCH_OFFSET = 10000;
+    private static final int MAX_QUERY_LENGTH = 200;
+
+    private static final String SQL_ALLOCATE_IDS =
+            "SELECT nextval(pg_get_serial_sequence('transactions', 'transaction_id')) FROM generate_series(1, ?)";
+
+    /**
+     * Candidatas por varias vías, cada una servida por un índice (ver V1.0.9, V1.0.12 y V1.0.18):
+     * texto completo sobre la descripción, trigramas sobre la descripción (ILIKE y
+     * word_similarity) y transacciones de categorías, activos (propio o relacionado) o pasivos
+     * cuyo nombre coincide, una rama por columna con igualdad simple para que cada una use su
+     * índice (user_id, columna, ...). Solo las candidatas se ordenan por relevancia.
+     */
+    private static final String SQL_SEARCH =
+            "WITH params AS ( " +
+                    "  SELECT websearch_to_tsquery('spanish', ?) AS tsq, ?::text AS term, ?::text AS pattern " +
+                    "), named AS ( " +
+                    "  SELECT 'c' AS kind, c.category_id AS id FROM categories c, params p " +
+                    "   WHERE c.user_id = ? AND (c.name ILIKE p.pattern OR p.term <% c.name) " +
+                    "  UNION ALL " +
+                    "  SELECT 'a', a.asset_id FROM assets a, params p " +
+                    "   WHERE a.user_id = ? AND (a.name ILIKE p.pattern OR p.term <% a.name) " +
+                    "  UNION ALL " +
+                    "  SELECT 'l', l.liability_id FROM liabilities l, params p " +
+                    "   WHERE l.user_id = ? AND (l.name ILIKE p.pattern OR p.term <% l.name) " +
+                    "), candidates AS ( " +
+                    "  SELECT t.transaction_id, t.transaction_date FROM transactions t, params p " +
+                    "   WHERE t.user_id = ? AND to_tsvector('spanish', COALESCE(t.description, '')) @@ p.tsq " +
+                    "  UNION " +
+                    "  SELECT t.transaction_id, t.transaction_date FROM transactions t, params p " +
+                    "   WHERE t.user_id = ? AND (t.description ILIKE p.pattern OR p.term <% t.description) " +
+                    "  UNION " +
+                    "  SELECT t.transaction_id, t.transaction_date FROM named n " +
+                    "    JOIN transactions t ON t.user_id = ? AND t.category_id = n.id WHERE n.kind = 'c' " +
+                    "  UNION " +
+                    "  SELECT t.transaction_id, t.transaction_date FROM named n " +
+                    "    JOIN transactions t ON t.user_id = ? AND t.asset_id = n.id WHERE n.kind = 'a' " +
+                    "  UNION " +
+                    "  SELECT t.transaction_id, t.transaction_date FROM named n " +
+                    "    JOIN transactions t ON t.user_id = ? AND t.related_asset_id = n.id WHERE n.kind = 'a' " +
+                    "  UNION " +
+                    "  SELECT t.transaction_id, t.transaction_date FROM named n " +
+                    "    JOIN transactions t ON t.user_id = ? AND t.liability_id = n.id WHERE n.kind = 'l' " +
+                    ") " +
+                    "SELECT t.*, c.name AS category_name, a.name AS asset_name, ra.name AS related_asset_name, " +
+                    "       l.name AS liability_name, " +
+                    "       ts_rank_cd(to_tsvector('spanish', COALESCE(t.description, '')), p.tsq) * 2 " +
+                    "       + word_similarity(p.term, COALESCE(t.description, '')) " +
+                    "       + CASE WHEN c.name ILIKE p.pattern OR a.name ILIKE p.pattern OR ra.name ILIKE p.pattern " +
+                    "              OR l.name ILIKE p.pattern THEN 0.5 ELSE 0 END AS rank " +
+                    "FROM candidates k " +
+                    "JOIN transactions t ON t.transaction_id = k.transaction_id AND t.transaction_date = k.transaction_date " +
+                    "CROSS JOIN params p " +
+                    "LEFT JOIN categories c ON c.category_id = t.category_id " +
+                    "LEFT JOIN assets a ON a.asset_id = t.asset_id " +
+                    "LEFT JOIN assets ra ON ra.asset_id = t.related_asset_id " +
+                    "LEFT JOIN liabilities l ON l.liability_id = t.liability_id " +
+                    "ORDER BY rank DESC, t.transaction_date DESC, t.transaction_id DESC " +
+                    "LIMIT ? OFFSET ?";
 
-    public TransactionServiceUseCase(JdbcTemplate jdbcTemplate) {
+    private static final String SQL_INSERT_WITH_ID =
+            "INSERT INTO transactions (transaction_id, user_id, category_id, asset_id, related_asset_id, liability_id, transaction_type, amount, transaction_date, description) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    public TransactionServiceUseCase(JdbcTemplate jdbcTemplate, UserDailyTotalsService dailyTotalsService,
+                                     ApplicationEventPublisher eventPublisher, TransactionCategorizer categorizer) {
         this.jdbcTemplate = jdbcTemplate;
+        this.dailyTotalsService = dailyTotalsService;
+        this.eventPublisher = eventPublisher;
+        this.categorizer = categorizer;
     }
 
     @Override
+    @Transactional
     public Transaction createTransaction(Long userId, Transaction transaction) {
+        // Alta interactiva: no se autocategoriza (el cliente tiene /suggest-category); con categoría, el modelo aprende de ella
+        boolean provided = transaction.getCategoryId() != null;
         String sql = "INSERT INTO transactions (user_id, category_id, asset_id, related_asset_id, liability_id, transaction_type, amount, transaction_date, description) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) RETURNING transaction_id";
         Long id = jdbcTemplate.queryForObject(sql, Long.class,
@@ -36,9 +135,101 @@ public class TransactionServiceUseCase implements TransactionServicePort {
         );
         transaction.setTransactionId(id);
         transaction.setUserId(userId);
+        dailyTotalsService.add(userId, transaction);
+        if (provided) {
+            categorizer.learn(userId, List.of(transaction));
+        }
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "transaction"));
         return transaction;
     }
 
+    /**
+     * Alta masiva todo-o-nada: valida el lote completo, reserva los ids de la secuencia
+     * en una sola consulta y escribe con inserts en batch (reWriteBatchedInserts los
+     * convierte en INSERT multi-fila en el driver).
+     */
+    @Override
+    @Transactional
+    public BulkTransactionResult createTransactions(Long userId, List<Transaction> transactions) {
+        long start = System.nanoTime();
+        validateBatch(transactions);
+
+        // Solo se aprende de las categorías que envía el cliente, no de las asignadas aquí
+        List<Transaction> labelled = new ArrayList<>();
+        for (Transaction t : transactions) {
+            if (t.getCategoryId() != null) labelled.add(t);
+        }
+        int categorized = categorizer.assignMissing(userId, transactions);
+
+        // Reservar N ids; ordenados ascendentemente se asignan en el orden recibido
+        List<Long> ids = jdbcTemplate.queryForList(SQL_ALLOCATE_IDS, Long.class, transactions.size());
+        ids = new ArrayList<>(ids);
+        Collections.sort(ids);
+
+        List<Object[]> batchArgs = new ArrayList<>(transactions.size());
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction t = transactions.get(i);
+            t.setTransactionId(ids.get(i));
+            t.setUserId(userId);
+            batchArgs.add(new Object[]{
+                    t.getTransactionId(),
+                    userId,
+                    t.getCategoryId(),
+                    t.getAssetId(),
+                    t.getRelatedAssetId(),
+                    t.getLiabilityId(),
+                    t.getType(),
+                    t.getAmount(),
+                    t.getTransactionDate(),
+                    t.getDescription()
+            });
+        }
+        for (int from = 0; from < batchArgs.size(); from += BULK_BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(SQL_INSERT_WITH_ID, batchArgs.subList(from, Math.min(from + BULK_BATCH_SIZE, batchArgs.size())));
+        }
+
+        dailyTotalsService.addAll(userId, transactions);
+        categorizer.learn(userId, labelled);
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "transaction"));
+
+        long elapsedNanos = System.nanoTime() - start;
+        double rowsPerSecond = elapsedNanos > 0 ? transactions.size() * 1_000_000_000.0 / elapsedNanos : 0;
+        log.info("Alta masiva para user={}: {} transacciones ({} categorizadas) en {} ms ({} filas/s)",
+                userId, transactions.size(), categorized, elapsedNanos / 1_000_000, Math.round(rowsPerSecond));
+
+        return BulkTransactionResult.builder()
+                .transactionIds(ids)
+                .count(transactions.size())
+                .elapsedMillis(elapsedNanos / 1_000_000)
+                .rowsPerSecond(rowsPerSecond)
+                .categorizedCount(categorized)
+                .build();
+    }
+
+    private void validateBatch(List<Transaction> transactions) {
+        if (transactions == null || transactions.isEmpty()) {
+            throw new IllegalArgumentException("El lote de transacciones está vacío");
+        }
+        if (transactions.size() > MAX_BULK_SIZE) {
+            throw new IllegalArgumentException("El lote admite como máximo " + MAX_BULK_SIZE + " transacciones");
+        }
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction t = transactions.get(i);
+            if (t == null) {
+                throw new IllegalArgumentException("Transacción " + i + ": vacía");
+            }
+            if (t.getType() == null || !VALID_TYPES.contains(t.getType())) {
+                throw new IllegalArgumentException("Transacción " + i + ": type debe ser 'income', 'expense' o 'neutral'");
+            }
+            if (t.getAmount() == null || t.getAmount().isNaN() || t.getAmount().isInfinite()) {
+                throw new IllegalArgumentException("Transacción " + i + ": amount es obligatorio");
+            }
+            if (t.getTransactionDate() == null) {
+                throw new IllegalArgumentException("Transacción " + i + ": transactionDate es obligatorio");
+            }
+        }
+    }
+
     @Override
     public Transaction getTransaction(Long userId, Long transactionId) {
         String sql = "SELECT * FROM transactions WHERE user_id = ? AND transaction_id = ?";
@@ -51,7 +242,48 @@ public class TransactionServiceUseCase implements TransactionServicePort {
         StringBuilder sql = new StringBuilder("SELECT * FROM transactions WHERE user_id = ?");
         List<Object> params = new ArrayList<>();
         params.add(userId);
+        appendFilters(sql, params, startDate, endDate, liabilityId, assetId, categoryId, relatedAssetId);
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapRow(rs), params.toArray());
+    }
+
+    @Override
+    public TransactionPage listTransactions(Long userId, LocalDate startDate, LocalDate endDate, Long liabilityId, Long assetId, Long categoryId, Long relatedAssetId, String cursor, Integer limit) {
+        int pageSize = TransactionKeyset.pageSize(limit, DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE);
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM transactions WHERE user_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        appendFilters(sql, params, startDate, endDate, liabilityId, assetId, categoryId, relatedAssetId);
+
+        return TransactionKeyset.fetchPage(jdbcTemplate, sql, params, cursor, pageSize, (rs, rowNum) -> mapRow(rs));
+    }
 
+    /**
+     * Recorre las transacciones del usuario con un cursor JDBC (fetch size acotado)
+     * y entrega cada fila al consumer sin acumularlas en memoria.
+     * PostgreSQL solo usa cursor con autocommit desactivado, de ahí la transacción.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamTransactions(Long userId, LocalDate startDate, LocalDate endDate, Consumer<Transaction> consumer) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM transactions WHERE user_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        appendFilters(sql, params, startDate, endDate, null, null, null, null);
+        sql.append(" ORDER BY transaction_date, transaction_id");
+
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            for (int i = 0; i < params.size(); i++) {
+                ps.setObject(i + 1, params.get(i));
+            }
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapRow(rs)));
+    }
+
+    private void appendFilters(StringBuilder sql, List<Object> params, LocalDate startDate, LocalDate endDate, Long liabilityId, Long assetId, Long categoryId, Long relatedAssetId) {
         if (liabilityId != null) {
             sql.append(" AND liability_id = ?");
             params.add(liabilityId);
@@ -73,13 +305,78 @@ public class TransactionServiceUseCase implements TransactionServicePort {
             sql.append(" AND related_asset_id = ?");
             params.add(relatedAssetId);
         }
+    }
 
-        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapRow(rs), params.toArray());
+    /**
+     * Búsqueda por relevancia en la descripción y en los nombres de categoría, activo y pasivo.
+     * Paginación por offset (el orden por relevancia no admite cursor estable), acotada a MAX_SEARCH_OFFSET.
+     */
+    @Override
+    public TransactionSearchPage searchTransactions(Long userId, String query, Integer page, Integer size) {
+        String term = query == null ? "" : query.trim();
+        if (term.isEmpty()) {
+            throw new IllegalArgumentException("q es obligatorio");
+        }
+        if (term.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("q no puede superar " + MAX_QUERY_LENGTH + " caracteres");
+        }
+        int pageSize = size == null ? DEFAULT_SEARCH_SIZE : size;
+        if (pageSize < 1 || pageSize > MAX_SEARCH_SIZE) {
+            throw new IllegalArgumentException("size debe estar entre 1 y " + MAX_SEARCH_SIZE);
+        }
+        int pageNumber = page == null ? 0 : page;
+        long offset = (long) pageNumber * pageSize;
+        if (pageNumber < 0 || offset > MAX_SEARCH_OFFSET) {
+            throw new IllegalArgumentException("page fuera de rango");
+        }
+
+        String pattern = "%" + escapeLike(term) + "%";
+        // Se pide una fila de más para saber si hay página siguiente
+        List<TransactionSearchHit> rows = jdbcTemplate.query(SQL_SEARCH, (rs, rowNum) -> TransactionSearchHit.builder()
+                        .transaction(mapRow(rs))
+                        .categoryName(rs.getString("category_name"))
+                        .assetName(rs.getString("asset_name"))
+                        .relatedAssetName(rs.getString("related_asset_name"))
+                        .liabilityName(rs.getString("liability_name"))
+                        .rank(rs.getDouble("rank"))
+                        .build(),
+                term, term, pattern,
+                userId, userId, userId,
+                userId, userId,
+                userId, userId, userId, userId,
+                pageSize + 1, offset);
+
+        boolean hasMore = rows.size() > pageSize;
+        return TransactionSearchPage.builder()
+                .items(hasMore ? rows.subList(0, pageSize) : rows)
+                .page(pageNumber)
+                .size(pageSize)
+                .hasMore(hasMore)
+                .build();
     }
 
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
 
     @Override
+    public CategorySuggestion suggestCategory(Long userId, String description, String type) {
+        if (description == null || description.isBlank()) {
+            throw new IllegalArgumentException("description es obligatorio");
+        }
+        if (description.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("description admite como máximo " + MAX_QUERY_LENGTH + " caracteres");
+        }
+        if (type != null && !VALID_TYPES.contains(type)) {
+            throw new IllegalArgumentException("type debe ser 'income', 'expense' o 'neutral'");
+        }
+        return categorizer.suggest(userId, description, type);
+    }
+
+    @Override
+    @Transactional
     public Transaction updateTransaction(Long userId, Long transactionId, Transaction transaction) {
+        List<Transaction> previous = findForUpdate(userId, transactionId);
         String sql = "UPDATE transactions SET category_id = ?, asset_id = ?, related_asset_id = ?, liability_id = ?, transaction_type = ?, amount = ?, transaction_date = ?, description = ?, updated_at = NOW() " +
                 "WHERE user_id = ? AND transaction_id = ?";
         jdbcTemplate.update(sql,
@@ -94,13 +391,30 @@ public class TransactionServiceUseCase implements TransactionServicePort {
                 userId,
                 transactionId
         );
-        return getTransaction(userId, transactionId);
+        Transaction updated = getTransaction(userId, transactionId);
+        previous.forEach(old -> dailyTotalsService.subtract(userId, old));
+        dailyTotalsService.add(userId, updated);
+        // Una corrección manual de categoría es la señal más fiable para el clasificador
+        if (updated.getCategoryId() != null && previous.stream().noneMatch(old -> updated.getCategoryId().equals(old.getCategoryId()))) {
+            categorizer.learn(userId, List.of(updated));
+        }
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "transaction"));
+        return updated;
     }
 
     @Override
+    @Transactional
     public void deleteTransaction(Long userId, Long transactionId) {
+        List<Transaction> previous = findForUpdate(userId, transactionId);
         String sql = "DELETE FROM transactions WHERE user_id = ? AND transaction_id = ?";
         jdbcTemplate.update(sql, userId, transactionId);
+        previous.forEach(old -> dailyTotalsService.subtract(userId, old));
+        eventPublisher.publishEvent(new UserDataChangedEvent(userId, "transaction"));
+    }
+
+    private List<Transaction> findForUpdate(Long userId, Long transactionId) {
+        String sql = "SELECT * FROM transactions WHERE user_id = ? AND transaction_id = ? FOR UPDATE";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> mapRow(rs), userId, transactionId);
     }
 
     private Transaction mapRow(ResultSet rs) throws SQLException {
@@ -0,0 +1,192 @@
+package com.cuentas.backend.application.services;
+
+import com.cuentas.backend.domain.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Mantiene el rollup diario user_daily_totals (user_id, day, category_id, transaction_type)
+ * a partir de las escrituras de transacciones. Todas las operaciones deben ejecutarse
+ * dentro de la misma transacción que modifica la tabla transactions.
+ * Los cambios de gasto se propagan a los contadores de presupuestos (BudgetConsumptionService)
+ * y al índice en memoria de sumas por rango (SpendingIndex).
+ */
+@Service
+public class UserDailyTotalsService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserDailyTotalsService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BudgetConsumptionService budgetConsumptionService;
+    private final SpendingIndex spendingIndex;
+
+    private static final String SQL_UPSERT_DELTA =
+            "INSERT INTO user_daily_totals (user_id, day, category_id, transaction_type, total_amount, transaction_count) " +
+                    "VALUES (?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT (user_id, day, (COALESCE(category_id, 0)), transaction_type) DO UPDATE SET " +
+                    "total_amount = user_daily_totals.total_amount + EXCLUDED.total_amount, " +
+                    "transaction_count = user_daily_totals.transaction_count + EXCLUDED.transaction_count";
+
+    private static final String SQL_DELETE_EMPTY =
+            "DELETE FROM user_daily_totals WHERE user_id = ? AND day = ? AND COALESCE(category_id, 0) = COALESCE(?, 0) " +
+                    "AND transaction_type = ? AND transaction_count <= 0";
+
+    private static final String SQL_DELETE_RANGE =
+            "DELETE FROM user_daily_totals WHERE user_id = ? AND day BETWEEN ? AND ?";
+
+    private static final String SQL_INSERT_RANGE =
+            "INSERT INTO user_daily_totals (user_id, day, category_id, transaction_type, total_amount, transaction_count) " +
+                    "SELECT user_id, transaction_date, category_id, transaction_type, SUM(amount), COUNT(*) " +
+                    "FROM transactions WHERE user_id = ? AND transaction_date BETWEEN ? AND ? " +
+                    "GROUP BY user_id, transaction_date, category_id, transaction_type";
+
+    private static final String SQL_DELETE_USER =
+            "DELETE FROM user_daily_totals WHERE user_id = ?";
+
+    private static final String SQL_INSERT_USER =
+            "INSERT INTO user_daily_totals (user_id, day, category_id, transaction_type, total_amount, transaction_count) " +
+                    "SELECT user_id, transaction_date, category_id, transaction_type, SUM(amount), COUNT(*) " +
+                    "FROM transactions WHERE user_id = ? " +
+                    "GROUP BY user_id, transaction_date, category_id, transaction_type";
+
+    private static final String SQL_MOVE_CATEGORY =
+            "INSERT INTO user_daily_totals (user_id, day, category_id, transaction_type, total_amount, transaction_count) " +
+                    "SELECT user_id, day, ?, transaction_type, total_amount, transaction_count " +
+                    "FROM user_daily_totals WHERE user_id = ? AND category_id = ? " +
+                    "ON CONFLICT (user_id, day, (COALESCE(category_id, 0)), transaction_type) DO UPDATE SET " +
+                    "total_amount = user_daily_totals.total_amount + EXCLUDED.total_amount, " +
+                    "transaction_count = user_daily_totals.transaction_count + EXCLUDED.transaction_count";
+
+    private static final String SQL_DELETE_CATEGORY =
+            "DELETE FROM user_daily_totals WHERE user_id = ? AND category_id = ?";
+
+    public UserDailyTotalsService(JdbcTemplate jdbcTemplate, BudgetConsumptionService budgetConsumptionService,
+                                  SpendingIndex spendingIndex) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.budgetConsumptionService = budgetConsumptionService;
+        this.spendingIndex = spendingIndex;
+    }
+
+    /**
+     * Suma una transacción nueva al rollup.
+     */
+    public void add(Long userId, Transaction transaction) {
+        applyDeltas(userId, List.of(transaction), 1);
+    }
+
+    /**
+     * Resta una transacción eliminada (o el estado anterior de una modificada) del rollup.
+     */
+    public void subtract(Long userId, Transaction transaction) {
+        applyDeltas(userId, List.of(transaction), -1);
+    }
+
+    /**
+     * Aplica un lote de transacciones agrupando por clave antes de escribir,
+     * de forma que N transacciones del mismo día y categoría son un único upsert.
+     */
+    public void addAll(Long userId, List<Transaction> transactions) {
+        applyDeltas(userId, transactions, 1);
+    }
+
+    /**
+     * Resta un lote de transacciones (estado anterior de filas modificadas en bloque).
+     */
+    public void subtractAll(Long userId, List<Transaction> transactions) {
+        applyDeltas(userId, transactions, -1);
+    }
+
+    /**
+     * Recalcula el rollup de un rango de fechas desde transactions.
+     * Usado por los importadores, que borran y reinsertan años completos.
+     */
+    public void rebuild(Long userId, LocalDate from, LocalDate to) {
+        int deleted = jdbcTemplate.update(SQL_DELETE_RANGE, userId, from, to);
+        int inserted = jdbcTemplate.update(SQL_INSERT_RANGE, userId, from, to);
+        log.info("Rollup diario recalculado para user={} entre {} y {}: {} filas eliminadas, {} insertadas",
+                userId, from, to, deleted, inserted);
+        budgetConsumptionService.refreshAll(userId);
+        spendingIndex.onRebuild(userId);
+    }
+
+    /**
+     * Recalcula el rollup completo de un usuario.
+     */
+    public void rebuild(Long userId) {
+        jdbcTemplate.update(SQL_DELETE_USER, userId);
+        int inserted = jdbcTemplate.update(SQL_INSERT_USER, userId);
+        log.info("Rollup diario recalculado para user={}: {} filas", userId, inserted);
+        budgetConsumptionService.refreshAll(userId);
+        spendingIndex.onRebuild(userId);
+    }
+
+    /**
+     * Mueve los totales de una categoría a otra (reasignación de transacciones).
+     */
+    public void moveCategory(Long userId, Long fromCategoryId, Long toCategoryId) {
+        if (Objects.equals(fromCategoryId, toCategoryId)) return;
+        jdbcTemplate.update(SQL_MOVE_CATEGORY, toCategoryId, userId, fromCategoryId);
+        jdbcTemplate.update(SQL_DELETE_CATEGORY, userId, fromCategoryId);
+        budgetConsumptionService.refreshAll(userId);
+        spendingIndex.onRebuild(userId);
+    }
+
+    private void applyDeltas(Long userId, List<Transaction> transactions, int sign) {
+        Map<DeltaKey, BigDecimal[]> deltas = new LinkedHashMap<>();
+        for (Transaction t : transactions) {
+            if (t.getTransactionDate() == null || t.getType() == null || t.getAmount() == null) continue;
+            DeltaKey key = new DeltaKey(t.getTransactionDate(), t.getCategoryId(), t.getType());
+            BigDecimal[] acc = deltas.computeIfAbsent(key, k -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+            acc[0] = acc[0].add(BigDecimal.valueOf(t.getAmount()));
+            acc[1] = acc[1].add(BigDecimal.ONE);
+        }
+        if (deltas.isEmpty()) return;
+
+        BigDecimal signum = BigDecimal.valueOf(sign);
+        List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        List<SpendingIndex.Delta> indexDeltas = new ArrayList<>(deltas.size());
+        for (Map.Entry<DeltaKey, BigDecimal[]> e : deltas.entrySet()) {
+            DeltaKey k = e.getKey();
+            BigDecimal amount = e.getValue()[0].multiply(signum);
+            batchArgs.add(new Object[]{userId, k.day, k.categoryId, k.type,
+                    amount, e.getValue()[1].multiply(signum).intValue()});
+            indexDeltas.add(new SpendingIndex.Delta(k.day, k.categoryId, k.type, SpendingIndex.toCents(amount)));
+        }
+        jdbcTemplate.batchUpdate(SQL_UPSERT_DELTA, batchArgs);
+        spendingIndex.onDeltas(userId, indexDeltas);
+
+        if (sign < 0) {
+            // Eliminar claves que se han quedado sin transacciones
+            List<Object[]> emptyArgs = new ArrayList<>(deltas.size());
+            for (DeltaKey k : deltas.keySet()) {
+                emptyArgs.add(new Object[]{userId, k.day, k.categoryId, k.type});
+            }
+            jdbcTemplate.batchUpdate(SQL_DELETE_EMPTY, emptyArgs);
+        }
+
+        // Contadores de presupuestos: solo gastos, agrupados por categoría y mes
+        Map<BudgetConsumptionService.MonthKey, BigDecimal> expenseDeltas = new LinkedHashMap<>();
+        for (Map.Entry<DeltaKey, BigDecimal[]> e : deltas.entrySet()) {
+            DeltaKey k = e.getKey();
+            if (!"expense".equals(k.type) || k.categoryId == null) continue;
+            expenseDeltas.merge(new BudgetConsumptionService.MonthKey(k.categoryId, k.day.withDayOfMonth(1)),
+                    e.getValue()[0].multiply(signum), BigDecimal::add);
+        }
+        if (!expenseDeltas.isEmpty()) {
+            budgetConsumptionService.applyExpenseDeltas(userId, expenseDeltas);
+        }
+    }
+
+    private record DeltaKey(LocalDate day, Long categoryId, String type) {
+    }
+}
@@ -0,0 +1,37 @@
+package com.cuentas.backend.application.services;
+
+import java.time.LocalDate;
+
+/**
+ * Opciones de historial de valoraciones en los listados de activos y pasivos.
+ * Por defecto solo se devuelve la última valoración de cada elemento; se pueden pedir
+ * las últimas N y/o limitar a una ventana de fechas. El historial completo se pagina
+ * aparte por keyset (valuation_date DESC, value_id DESC).
+ */
+final class ValuationWindow {
+
+    static final int DEFAULT_VALUES = 1;
+    static final int MAX_VALUES = 1000;
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+
+    private ValuationWindow() {
+    }
+
+    /**
+     * Número máximo de valoraciones por elemento. Con ventana y sin N, todas las de la
+     * ventana (hasta MAX_VALUES); 0 significa no cargar valoraciones.
+     */
+    static int valuesPerItem(Integer values, LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("valuesFrom no puede ser posterior a valuesTo");
+        }
+        if (values == null) {
+            return from != null || to != null ? MAX_VALUES : DEFAULT_VALUES;
+        }
+        if (values < 0 || values > MAX_VALUES) {
+            throw new IllegalArgumentException("values debe estar entre 0 y " + MAX_VALUES);
+        }
+        return values;
+    }
+}
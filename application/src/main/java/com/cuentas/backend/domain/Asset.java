@@ -21,6 +21,8 @@ public class Asset {
     private LocalDate acquisitionDate;
     private Double acquisitionValue;
     private Boolean isPrimary;
+    private Double currentValue; // Última valoración (proyección mantenida en assets)
+    private LocalDate currentValueDate;
     List<AssetValue> assetValues;
 
     public Asset(String name, Long userId,Long assetTypeId, LocalDate acquisitionDate, Double acquisitionValue){
@@ -20,7 +20,9 @@ public class AssetDetail {
     private BigDecimal netProfit; // Beneficio neto
     private Double roiPercentage; // ROI en porcentaje
     private Integer transactionCount;
-    private List<Transaction> recentTransactions; // Últimas 10 transacciones
-    private List<AssetValue> valueHistory; // Historial de valores (últimos 12 meses)
+    private List<Transaction> recentTransactions; // Página de transacciones más recientes
+    private String nextCursor; // Cursor de la siguiente página de recentTransactions (null si no hay más)
+    private List<AssetValue> valueHistory; // Última página de valoraciones, de la más reciente a la más antigua
+    private String valueHistoryNextCursor; // Cursor para GET /assets/{id}/valuations (null si no hay más)
 }
 
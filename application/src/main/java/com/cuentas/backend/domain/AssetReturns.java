@@ -0,0 +1,24 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AssetReturns {
+    private Long assetId;                      // null en el agregado de cartera
+    private String name;
+    private LocalDate startDate;               // Adquisición o primera valoración
+    private LocalDate endDate;                 // Última valoración
+    private Double endValue;
+    private Double xirrPercentage;             // Rentabilidad ponderada por dinero (anual); null si no hay solución
+    private Double twrPercentage;              // Rentabilidad ponderada por tiempo del periodo completo
+    private Double annualizedTwrPercentage;    // Solo con al menos un año de historia
+    private Integer cashFlowCount;
+    private Integer valuationCount;
+}
@@ -0,0 +1,27 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BudgetAlert {
+    private Long alertId;
+    private Long userId;
+    private String userName;
+    private String email;
+    private Long budgetId;
+    private Long categoryId;
+    private String categoryName;
+    private String period;
+    private LocalDate periodStart;
+    private Integer threshold;
+    private BigDecimal spent;
+    private BigDecimal budgetAmount;
+}
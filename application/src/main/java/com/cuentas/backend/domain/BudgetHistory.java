@@ -0,0 +1,37 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BudgetHistory {
+    private Long budgetId;
+    private Long categoryId;
+    private String categoryName;
+    private String period;
+    private BigDecimal budgetAmount;
+    private List<BudgetHistoryPoint> points;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BudgetHistoryPoint {
+        private LocalDate periodStart;
+        private LocalDate periodEnd;
+        private BigDecimal spent;
+        private BigDecimal remaining;
+        private Double percentageUsed;
+        private BigDecimal cumulativeBudget;
+        private BigDecimal cumulativeSpent;
+        private BigDecimal changeFromPrevious;
+    }
+}
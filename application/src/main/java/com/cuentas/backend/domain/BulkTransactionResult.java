@@ -0,0 +1,20 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkTransactionResult {
+    // Ids generados, en el mismo orden que las transacciones recibidas
+    private List<Long> transactionIds;
+    private Integer count;
+    private Long elapsedMillis;
+    private Double rowsPerSecond;
+    private Integer categorizedCount; // Transacciones sin categoría a las que se ha asignado una automáticamente
+}
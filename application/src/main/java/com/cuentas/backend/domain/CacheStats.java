@@ -0,0 +1,22 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStats {
+    private String name;
+    private Long size;              // Entradas actuales
+    private Long hitCount;
+    private Long missCount;
+    private Double hitRate;         // 0..1
+    private Long loadSuccessCount;
+    private Long loadFailureCount;
+    private Double averageLoadMillis;
+    private Long evictionCount;
+}
@@ -19,6 +19,7 @@ public class CategoryDetail {
     private BigDecimal totalExpenses;
     private BigDecimal netBalance;
     private Integer transactionCount;
-    private List<Transaction> recentTransactions; // Últimas 10 transacciones
+    private List<Transaction> recentTransactions; // Página de transacciones más recientes
+    private String nextCursor; // Cursor de la siguiente página de recentTransactions (null si no hay más)
 }
 
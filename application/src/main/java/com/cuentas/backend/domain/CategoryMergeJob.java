@@ -0,0 +1,29 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryMergeJob {
+    private Long jobId;
+    private Long userId;
+    private List<Long> sourceCategoryIds;
+    private Long targetCategoryId;
+    private Boolean deleteSources;
+    private String status; // pending, running, completed, failed
+    private Integer totalTransactions;
+    private Integer movedTransactions;
+    private Double progressPercentage;
+    private String error;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,18 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryMergeRequest {
+    private List<Long> sourceCategoryIds;
+    private Long targetCategoryId;
+    private Boolean deleteSources; // Eliminar las categorías origen al terminar
+}
@@ -0,0 +1,15 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategorySuggestion {
+    private Long categoryId;
+    private Double confidence; // Probabilidad estimada (0-1) de la categoría sugerida
+}
@@ -0,0 +1,28 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryTreeNode {
+    private Category category;
+    private Integer depth;
+    // Totales de la propia categoría
+    private BigDecimal totalIncome;
+    private BigDecimal totalExpenses;
+    private Integer transactionCount;
+    // Totales de la categoría más todos sus descendientes
+    private BigDecimal subtreeIncome;
+    private BigDecimal subtreeExpenses;
+    private BigDecimal subtreeNetBalance;
+    private Integer subtreeTransactionCount;
+    private List<CategoryTreeNode> children;
+}
@@ -13,5 +13,6 @@ public class CreateAssetValueRequest {
     private LocalDate valuationDate;
     private Double currentValue;
     private Double acquisitionValue; // Opcional
+    private Long assetId; // Solo en la carga masiva; en el alta individual va en la ruta
 }
 
@@ -13,5 +13,6 @@ public class CreateLiabilityValueRequest {
     private LocalDate valuationDate;
     private Double outstandingBalance;
     private LocalDate endDate; // Opcional
+    private Long liabilityId; // Solo en la carga masiva; en el alta individual va en la ruta
 }
 
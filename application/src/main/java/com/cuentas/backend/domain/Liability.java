@@ -21,6 +21,8 @@ public class Liability {
     private Double principalAmount;
     private Long interestId;
     private LocalDate startDate;
+    private Double outstandingBalance; // Último saldo pendiente (proyección mantenida en liabilities)
+    private LocalDate outstandingBalanceDate;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private List<LiabilityValue> liabilityValues;
@@ -18,8 +18,10 @@ public class LiabilityDetail {
     private BigDecimal principalPaid; // Capital pagado
     private BigDecimal progressPercentage; // Porcentaje de progreso
     private Integer transactionCount;
-    private List<Transaction> recentTransactions; // Últimas 10 transacciones
-    private List<LiabilityValue> valueHistory; // Historial de valores (últimos 12 meses)
+    private List<Transaction> recentTransactions; // Página de transacciones más recientes
+    private String nextCursor; // Cursor de la siguiente página de recentTransactions (null si no hay más)
+    private List<LiabilityValue> valueHistory; // Última página de snapshots, del más reciente al más antiguo
+    private String valueHistoryNextCursor; // Cursor para GET /liabilities/{id}/values (null si no hay más)
     private List<Interest> interests; // Intereses asociados
 }
 
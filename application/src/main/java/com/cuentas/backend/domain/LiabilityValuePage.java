@@ -0,0 +1,18 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiabilityValuePage {
+    // Valoraciones de la más reciente a la más antigua
+    private List<LiabilityValue> items;
+    // Token opaco para pedir la siguiente página; null si no hay más
+    private String nextCursor;
+}
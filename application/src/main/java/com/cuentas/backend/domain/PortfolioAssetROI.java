@@ -0,0 +1,26 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioAssetROI {
+    private Long assetId;
+    private String name;
+    private Double acquisitionValue;
+    private Double currentValue;          // Última valoración (proyección de assets); null si no tiene
+    private LocalDate currentValueDate;
+    private double totalIncome;
+    private double totalExpenses;
+    private double netProfit;
+    private double roiPercentage;         // Mismo cálculo que /assets/{assetId}/roi
+    private Double valueChange;           // currentValue - acquisitionValue; null sin valoración
+    private List<MonthlyROI> monthly;     // Los 12 meses del año pedido
+}
@@ -0,0 +1,23 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioROI {
+    private Integer year;                 // Año de las series mensuales
+    private double totalInvested;         // Suma de acquisition_value
+    private double totalCurrentValue;     // Suma de las últimas valoraciones
+    private double totalIncome;
+    private double totalExpenses;
+    private double netProfit;
+    private double roiPercentage;         // netProfit / totalInvested
+    private List<MonthlyROI> monthly;     // Serie agregada de toda la cartera
+    private List<PortfolioAssetROI> assets;
+}
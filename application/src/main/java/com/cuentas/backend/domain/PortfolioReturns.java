@@ -0,0 +1,19 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioReturns {
+    private AssetReturns portfolio;            // Todos los activos como una sola serie
+    private List<AssetReturns> assets;
+    private LocalDateTime computedAt;
+    private Long elapsedMillis;
+}
@@ -0,0 +1,20 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SpendingRangeTotal {
+    private Long categoryId;   // null = todas las categorías
+    private String type;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private BigDecimal total;
+}
@@ -0,0 +1,34 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SyncDelta {
+    // Marca de agua opaca para la siguiente sincronización
+    private String watermark;
+    // true si no se envió marca de agua (o es anterior a la retención de lápidas) y la respuesta contiene todos los datos
+    private Boolean fullSync;
+    private List<Category> categories;
+    private List<Asset> assets;
+    private List<AssetValue> assetValues;
+    private List<Liability> liabilities;
+    private List<LiabilityValue> liabilityValues;
+    private List<Transaction> transactions;
+    private List<Deleted> deleted;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Deleted {
+        private String entity; // "category", "asset", "asset_value", "liability", "liability_value", "transaction"
+        private Long id;
+    }
+}
@@ -0,0 +1,19 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionSearchHit {
+    private Transaction transaction;
+    private String categoryName;
+    private String assetName;
+    private String relatedAssetName;
+    private String liabilityName;
+    private Double rank;
+}
@@ -0,0 +1,18 @@
+package com.cuentas.backend.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionSearchPage {
+    private List<TransactionSearchHit> items;
+    private Integer page;
+    private Integer size;
+    private Boolean hasMore;
+}
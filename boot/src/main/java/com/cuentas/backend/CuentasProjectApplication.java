@@ -2,8 +2,10 @@ package com.cuentas.backend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(scanBasePackages = "com.cuentas")
+@EnableScheduling
 public class CuentasProjectApplication {
 
 	public static void main(String[] args) {
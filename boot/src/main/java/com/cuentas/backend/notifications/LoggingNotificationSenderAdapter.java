@@ -0,0 +1,24 @@
+package com.cuentas.backend.notifications;
+
+import com.cuentas.backend.application.ports.driven.NotificationSenderPort;
+import com.cuentas.backend.domain.BudgetAlert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Envío de notificaciones por defecto: deja constancia en el log.
+ * Sustituir por un adaptador de correo cuando haya proveedor SMTP configurado.
+ */
+@Component
+public class LoggingNotificationSenderAdapter implements NotificationSenderPort {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggingNotificationSenderAdapter.class);
+
+    @Override
+    public void sendBudgetAlert(BudgetAlert alert) {
+        logger.info("Alerta de presupuesto para {} <{}>: categoría '{}' al {}% ({} de {}, periodo {} desde {})",
+                alert.getUserName(), alert.getEmail(), alert.getCategoryName(), alert.getThreshold(),
+                alert.getSpent(), alert.getBudgetAmount(), alert.getPeriod(), alert.getPeriodStart());
+    }
+}
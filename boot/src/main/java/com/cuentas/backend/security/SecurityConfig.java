@@ -48,6 +48,7 @@ public class SecurityConfig {
         ));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
+        configuration.setExposedHeaders(Arrays.asList("ETag", "X-Next-Cursor"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
         
@@ -71,6 +72,8 @@ public class SecurityConfig {
                 .requestMatchers("/api-docs/**").permitAll()
                 .requestMatchers("/swagger-ui/**").permitAll()
                 .requestMatchers("/swagger-ui.html").permitAll()
+                // Estadísticas globales de caché: solo administradores (security.admin-user-ids)
+                .requestMatchers("/api/cache/**").hasAuthority("ADMIN")
                 // Requerir autenticación para todo lo demás
                 .requestMatchers("/api/**").authenticated()
                 .anyRequest().permitAll()
@@ -0,0 +1,13 @@
+-- ===========================================
+-- V1.0.10__create-budget-consumption.sql
+-- ===========================================
+
+-- Gasto acumulado de cada presupuesto en su periodo actual (mes o año de period_start).
+-- Lo mantiene BudgetConsumptionService en la misma transacción que las escrituras de
+-- transacciones; si period_start no es el periodo actual, se recalcula al leer.
+CREATE TABLE budget_consumption (
+  budget_id INTEGER PRIMARY KEY REFERENCES budgets(budget_id) ON DELETE CASCADE,
+  period_start DATE NOT NULL,
+  spent DECIMAL(18,2) NOT NULL DEFAULT 0,
+  updated_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
@@ -0,0 +1,27 @@
+-- ===========================================
+-- V1.0.11__create-budget-alert-outbox.sql
+-- ===========================================
+
+-- Alertas de umbral de presupuesto (80 % y 100 %) pendientes de notificar.
+-- Se insertan en la transacción que modifica el gasto (BudgetAlertService.evaluate)
+-- y las consume un notificador por lotes. La clave única evita repetir una alerta
+-- del mismo umbral dentro del mismo periodo.
+CREATE TABLE budget_alert_outbox (
+  alert_id BIGSERIAL PRIMARY KEY,
+  user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+  budget_id INTEGER NOT NULL REFERENCES budgets(budget_id) ON DELETE CASCADE,
+  category_id INTEGER NOT NULL,
+  period_start DATE NOT NULL,
+  threshold INTEGER NOT NULL,
+  spent DECIMAL(18,2) NOT NULL,
+  budget_amount DECIMAL(15,2) NOT NULL,
+  status VARCHAR(10) NOT NULL DEFAULT 'pending' CHECK (status IN ('pending', 'sent', 'skipped', 'failed')),
+  attempts INTEGER NOT NULL DEFAULT 0,
+  created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+  processed_at TIMESTAMP,
+  CONSTRAINT ux_budget_alert_outbox_threshold UNIQUE (budget_id, period_start, threshold)
+);
+
+-- Cola de pendientes para el notificador
+CREATE INDEX idx_budget_alert_outbox_pending
+ON budget_alert_outbox(alert_id) WHERE status = 'pending';
@@ -0,0 +1,19 @@
+-- ===========================================
+-- V1.0.12__add-detail-keyset-indexes.sql
+-- ===========================================
+
+-- Páginas de transacciones recientes en el detalle de categoría, activo y pasivo:
+-- (user_id, <entidad>, transaction_date DESC, transaction_id DESC) sirve el filtro,
+-- el orden y la condición de keyset sin ordenar en memoria.
+DROP INDEX IF EXISTS idx_transactions_user_category;
+
+CREATE INDEX idx_transactions_user_category_date_id
+ON transactions(user_id, category_id, transaction_date DESC, transaction_id DESC);
+
+CREATE INDEX idx_transactions_user_related_asset_date_id
+ON transactions(user_id, related_asset_id, transaction_date DESC, transaction_id DESC)
+WHERE related_asset_id IS NOT NULL;
+
+CREATE INDEX idx_transactions_user_liability_date_id
+ON transactions(user_id, liability_id, transaction_date DESC, transaction_id DESC)
+WHERE liability_id IS NOT NULL;
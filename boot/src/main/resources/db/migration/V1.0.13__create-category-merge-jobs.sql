@@ -0,0 +1,25 @@
+-- ===========================================
+-- V1.0.13__create-category-merge-jobs.sql
+-- ===========================================
+
+-- Trabajos de fusión de categorías (CategoryMergeServiceUseCase).
+-- Las transacciones se mueven por lotes en transacciones cortas; esta tabla guarda
+-- el estado y el progreso para consultarlo y para reanudar trabajos tras un reinicio.
+CREATE TABLE category_merge_jobs (
+  job_id BIGSERIAL PRIMARY KEY,
+  user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+  source_category_ids INTEGER[] NOT NULL,
+  target_category_id INTEGER NOT NULL,
+  delete_sources BOOLEAN NOT NULL DEFAULT FALSE,
+  status VARCHAR(10) NOT NULL DEFAULT 'pending' CHECK (status IN ('pending', 'running', 'completed', 'failed')),
+  total_transactions INTEGER NOT NULL DEFAULT 0,
+  moved_transactions INTEGER NOT NULL DEFAULT 0,
+  error TEXT,
+  created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+  started_at TIMESTAMP,
+  finished_at TIMESTAMP,
+  updated_at TIMESTAMP
+);
+
+CREATE INDEX idx_category_merge_jobs_user ON category_merge_jobs(user_id, job_id DESC);
+CREATE INDEX idx_category_merge_jobs_unfinished ON category_merge_jobs(job_id) WHERE status IN ('pending', 'running');
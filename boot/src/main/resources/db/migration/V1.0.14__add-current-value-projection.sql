@@ -0,0 +1,121 @@
+-- ===========================================
+-- V1.0.14__add-current-value-projection.sql
+-- ===========================================
+
+-- Última valoración de cada activo y pasivo guardada en la propia fila (proyección).
+-- La mantienen triggers sobre asset_values / liability_values, así que se actualiza con
+-- cualquier escritura de valoraciones (servicios, importadores, borrados en cascada) y el
+-- valor actual y el patrimonio neto pasan a ser lecturas directas de assets / liabilities.
+-- Desempate entre valoraciones del mismo día: la de value_id más alto.
+
+-- 1. Columnas de la proyección
+ALTER TABLE assets ADD COLUMN IF NOT EXISTS current_value DECIMAL(15,2);
+ALTER TABLE assets ADD COLUMN IF NOT EXISTS current_value_date DATE;
+
+ALTER TABLE liabilities ADD COLUMN IF NOT EXISTS outstanding_balance DECIMAL(15,2);
+ALTER TABLE liabilities ADD COLUMN IF NOT EXISTS outstanding_balance_date DATE;
+ALTER TABLE liabilities ADD COLUMN IF NOT EXISTS outstanding_end_date DATE;
+
+-- 2. Índices para recalcular la última valoración y para las consultas por fecha
+CREATE INDEX IF NOT EXISTS idx_asset_values_asset_date ON asset_values(asset_id, valuation_date DESC, value_id DESC);
+CREATE INDEX IF NOT EXISTS idx_liability_values_liability_date ON liability_values(liability_id, valuation_date DESC, value_id DESC);
+
+-- 3. Carga inicial
+UPDATE assets a SET current_value = av.current_value, current_value_date = av.valuation_date
+FROM (
+  SELECT DISTINCT ON (asset_id) asset_id, current_value, valuation_date
+  FROM asset_values
+  ORDER BY asset_id, valuation_date DESC, value_id DESC
+) av
+WHERE av.asset_id = a.asset_id;
+
+UPDATE liabilities l SET outstanding_balance = lv.outstanding_balance,
+                         outstanding_balance_date = lv.valuation_date,
+                         outstanding_end_date = lv.end_date
+FROM (
+  SELECT DISTINCT ON (liability_id) liability_id, outstanding_balance, valuation_date, end_date
+  FROM liability_values
+  ORDER BY liability_id, valuation_date DESC, value_id DESC
+) lv
+WHERE lv.liability_id = l.liability_id;
+
+-- 4. Recalcular la proyección de un activo / pasivo desde sus valoraciones
+CREATE OR REPLACE FUNCTION refresh_asset_current_value(p_asset_id INTEGER) RETURNS VOID AS $$
+BEGIN
+  UPDATE assets a SET (current_value, current_value_date) = (
+    SELECT av.current_value, av.valuation_date FROM asset_values av
+    WHERE av.asset_id = p_asset_id
+    ORDER BY av.valuation_date DESC, av.value_id DESC LIMIT 1)
+  WHERE a.asset_id = p_asset_id;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION refresh_liability_outstanding_balance(p_liability_id INTEGER) RETURNS VOID AS $$
+BEGIN
+  UPDATE liabilities l SET (outstanding_balance, outstanding_balance_date, outstanding_end_date) = (
+    SELECT lv.outstanding_balance, lv.valuation_date, lv.end_date FROM liability_values lv
+    WHERE lv.liability_id = p_liability_id
+    ORDER BY lv.valuation_date DESC, lv.value_id DESC LIMIT 1)
+  WHERE l.liability_id = p_liability_id;
+END;
+$$ LANGUAGE plpgsql;
+
+-- 5. Triggers. Un alta solo toca la fila si es la valoración más reciente; modificaciones y
+-- borrados recalculan (una lectura por índice) cuando afectan a la valoración vigente.
+CREATE OR REPLACE FUNCTION sync_asset_current_value() RETURNS trigger AS $$
+BEGIN
+  IF TG_OP = 'INSERT' THEN
+    UPDATE assets SET current_value = NEW.current_value, current_value_date = NEW.valuation_date
+    WHERE asset_id = NEW.asset_id
+      AND (current_value_date IS NULL OR NEW.valuation_date >= current_value_date);
+    RETURN NEW;
+  END IF;
+
+  IF TG_OP = 'UPDATE' THEN
+    PERFORM refresh_asset_current_value(NEW.asset_id);
+    IF OLD.asset_id <> NEW.asset_id THEN
+      PERFORM refresh_asset_current_value(OLD.asset_id);
+    END IF;
+    RETURN NEW;
+  END IF;
+
+  -- DELETE: solo si era (o empataba con) la valoración vigente
+  IF EXISTS (SELECT 1 FROM assets WHERE asset_id = OLD.asset_id
+             AND (current_value_date IS NULL OR OLD.valuation_date >= current_value_date)) THEN
+    PERFORM refresh_asset_current_value(OLD.asset_id);
+  END IF;
+  RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION sync_liability_outstanding_balance() RETURNS trigger AS $$
+BEGIN
+  IF TG_OP = 'INSERT' THEN
+    UPDATE liabilities SET outstanding_balance = NEW.outstanding_balance,
+                           outstanding_balance_date = NEW.valuation_date,
+                           outstanding_end_date = NEW.end_date
+    WHERE liability_id = NEW.liability_id
+      AND (outstanding_balance_date IS NULL OR NEW.valuation_date >= outstanding_balance_date);
+    RETURN NEW;
+  END IF;
+
+  IF TG_OP = 'UPDATE' THEN
+    PERFORM refresh_liability_outstanding_balance(NEW.liability_id);
+    IF OLD.liability_id <> NEW.liability_id THEN
+      PERFORM refresh_liability_outstanding_balance(OLD.liability_id);
+    END IF;
+    RETURN NEW;
+  END IF;
+
+  IF EXISTS (SELECT 1 FROM liabilities WHERE liability_id = OLD.liability_id
+             AND (outstanding_balance_date IS NULL OR OLD.valuation_date >= outstanding_balance_date)) THEN
+    PERFORM refresh_liability_outstanding_balance(OLD.liability_id);
+  END IF;
+  RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_asset_values_current_value AFTER INSERT OR UPDATE OR DELETE ON asset_values
+  FOR EACH ROW EXECUTE FUNCTION sync_asset_current_value();
+CREATE TRIGGER trg_liability_values_outstanding_balance AFTER INSERT OR UPDATE OR DELETE ON liability_values
+  FOR EACH ROW EXECUTE FUNCTION sync_liability_outstanding_balance();
@@ -0,0 +1,27 @@
+-- ===========================================
+-- V1.0.15__add-valuation-unique-constraints.sql
+-- ===========================================
+
+-- Una sola valoración por activo / pasivo y fecha, para poder escribirlas con
+-- INSERT ... ON CONFLICT (id, valuation_date) DO UPDATE en una única sentencia.
+
+-- 1. Eliminar duplicados: se conserva la de value_id más alto, que es la que ya
+--    tomaban como vigente la proyección de V1.0.14 y los listados
+DELETE FROM asset_values av
+USING asset_values newer
+WHERE newer.asset_id = av.asset_id
+  AND newer.valuation_date = av.valuation_date
+  AND newer.value_id > av.value_id;
+
+DELETE FROM liability_values lv
+USING liability_values newer
+WHERE newer.liability_id = lv.liability_id
+  AND newer.valuation_date = lv.valuation_date
+  AND newer.value_id > lv.value_id;
+
+-- 2. Restricciones únicas (árbitro de los ON CONFLICT)
+ALTER TABLE asset_values
+    ADD CONSTRAINT uq_asset_values_asset_date UNIQUE (asset_id, valuation_date);
+
+ALTER TABLE liability_values
+    ADD CONSTRAINT uq_liability_values_liability_date UNIQUE (liability_id, valuation_date);
@@ -0,0 +1,18 @@
+-- ===========================================
+-- V1.0.16__add-sync-tombstone-retention.sql
+-- ===========================================
+
+-- Retención de lápidas de sincronización (ver SyncTombstoneRetention).
+-- Un proceso programado borra las lápidas más antiguas que sync.tombstones.retention-days
+-- y guarda aquí el mayor sync_xid borrado. Un cliente cuya marca de agua no supera ese
+-- valor podría no recibir algún borrado, así que se le responde con una sincronización completa.
+
+CREATE TABLE sync_retention (
+  id SMALLINT PRIMARY KEY CHECK (id = 1),
+  pruned_through_xid BIGINT NOT NULL DEFAULT 0,
+  pruned_at TIMESTAMP
+);
+
+INSERT INTO sync_retention (id) VALUES (1);
+
+CREATE INDEX IF NOT EXISTS idx_sync_tombstones_deleted_at ON sync_tombstones(deleted_at);
@@ -0,0 +1,22 @@
+-- ===========================================
+-- V1.0.17__skip-tombstones-for-moved-transactions.sql
+-- ===========================================
+
+-- Un UPDATE que cambia transaction_date de año mueve la fila de partición: PostgreSQL lo
+-- ejecuta como DELETE + INSERT y dispara el AFTER DELETE de la partición origen. La fila sigue
+-- viva, así que no debe generar lápida (la sincronización la enviaría como borrada).
+-- Los AFTER triggers se ejecutan al final de la sentencia, cuando la fila ya está en su nueva
+-- partición, de modo que basta con comprobar si el id sigue existiendo.
+CREATE OR REPLACE FUNCTION record_transaction_tombstone() RETURNS trigger AS $$
+BEGIN
+  -- ensure_transactions_partition mueve filas entre particiones: no son borrados reales
+  IF current_setting('cuentas.moving_partition_rows', true) = 'on' THEN
+    RETURN OLD;
+  END IF;
+  IF EXISTS (SELECT 1 FROM transactions WHERE transaction_id = OLD.transaction_id) THEN
+    RETURN OLD;
+  END IF;
+  INSERT INTO sync_tombstones (user_id, entity, entity_id) VALUES (OLD.user_id, 'transaction', OLD.transaction_id);
+  RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,9 @@
+-- ===========================================
+-- V1.0.18__add-transactions-asset-index.sql
+-- ===========================================
+
+-- Búsqueda de transacciones: la rama de activos cuyo nombre coincide filtra por asset_id
+-- (la de related_asset_id ya la sirve idx_transactions_user_related_asset_date_id, V1.0.12).
+CREATE INDEX idx_transactions_user_asset_date_id
+ON transactions(user_id, asset_id, transaction_date DESC, transaction_id DESC)
+WHERE asset_id IS NOT NULL;
@@ -0,0 +1,29 @@
+-- ===========================================
+-- V1.0.4__create-user-daily-totals.sql
+-- ===========================================
+
+-- Rollup diario de transacciones por usuario, categoría y tipo.
+-- Se mantiene desde la aplicación (TransactionServiceUseCase, importadores Excel,
+-- reasignación de categorías) y sirve a los agregados de dashboard, presupuestos y categorías.
+CREATE TABLE user_daily_totals (
+  user_id INTEGER NOT NULL REFERENCES users(user_id) ON DELETE CASCADE,
+  day DATE NOT NULL,
+  category_id INTEGER,
+  transaction_type VARCHAR(20) NOT NULL,
+  total_amount DECIMAL(18,2) NOT NULL DEFAULT 0,
+  transaction_count INTEGER NOT NULL DEFAULT 0
+);
+
+-- Clave lógica (user_id, day, category_id, transaction_type); category_id puede ser NULL
+CREATE UNIQUE INDEX ux_user_daily_totals_key
+ON user_daily_totals(user_id, day, (COALESCE(category_id, 0)), transaction_type);
+
+-- Índice para agregados por categoría (presupuestos, detalle de categoría)
+CREATE INDEX idx_user_daily_totals_category
+ON user_daily_totals(user_id, category_id, transaction_type, day);
+
+-- Carga inicial desde las transacciones existentes
+INSERT INTO user_daily_totals (user_id, day, category_id, transaction_type, total_amount, transaction_count)
+SELECT user_id, transaction_date, category_id, transaction_type, SUM(amount), COUNT(*)
+FROM transactions
+GROUP BY user_id, transaction_date, category_id, transaction_type;
@@ -0,0 +1,8 @@
+-- ===========================================
+-- V1.0.5__add-data-version-to-users.sql
+-- ===========================================
+
+-- Versión de los datos del usuario: se incrementa en cada escritura
+-- (ver DataVersionServiceUseCase) y sirve para generar ETags en la API REST
+ALTER TABLE users
+ADD COLUMN IF NOT EXISTS data_version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,8 @@
+-- ===========================================
+-- V1.0.6__add-transactions-keyset-index.sql
+-- ===========================================
+
+-- Índice para la paginación por cursor de transacciones:
+-- ORDER BY transaction_date DESC, transaction_id DESC dentro de un usuario
+CREATE INDEX IF NOT EXISTS idx_transactions_user_date_id
+ON transactions(user_id, transaction_date DESC, transaction_id DESC);
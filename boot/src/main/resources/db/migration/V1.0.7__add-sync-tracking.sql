@@ -0,0 +1,92 @@
+-- ===========================================
+-- V1.0.7__add-sync-tracking.sql
+-- ===========================================
+
+-- Sincronización incremental (ver SyncServiceUseCase).
+-- Cada fila guarda el id de la última transacción que la escribió (sync_xid). El cliente
+-- recibe como marca de agua el xmin del snapshot de lectura: todo lo confirmado antes
+-- tiene un xid menor, y lo que estaba en curso (xid >= xmin) se vuelve a enviar en la
+-- siguiente sincronización. A diferencia de updated_at, no depende de relojes ni de
+-- cuánto tarde en confirmarse una transacción.
+
+CREATE OR REPLACE FUNCTION set_sync_xid() RETURNS trigger AS $$
+BEGIN
+  NEW.sync_xid := pg_current_xact_id();
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+ALTER TABLE categories ADD COLUMN IF NOT EXISTS sync_xid xid8 NOT NULL DEFAULT pg_current_xact_id();
+ALTER TABLE assets ADD COLUMN IF NOT EXISTS sync_xid xid8 NOT NULL DEFAULT pg_current_xact_id();
+ALTER TABLE liabilities ADD COLUMN IF NOT EXISTS sync_xid xid8 NOT NULL DEFAULT pg_current_xact_id();
+ALTER TABLE asset_values ADD COLUMN IF NOT EXISTS sync_xid xid8 NOT NULL DEFAULT pg_current_xact_id();
+ALTER TABLE liability_values ADD COLUMN IF NOT EXISTS sync_xid xid8 NOT NULL DEFAULT pg_current_xact_id();
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS sync_xid xid8 NOT NULL DEFAULT pg_current_xact_id();
+
+CREATE TRIGGER trg_categories_sync_xid BEFORE UPDATE ON categories
+  FOR EACH ROW EXECUTE FUNCTION set_sync_xid();
+CREATE TRIGGER trg_assets_sync_xid BEFORE UPDATE ON assets
+  FOR EACH ROW EXECUTE FUNCTION set_sync_xid();
+CREATE TRIGGER trg_liabilities_sync_xid BEFORE UPDATE ON liabilities
+  FOR EACH ROW EXECUTE FUNCTION set_sync_xid();
+CREATE TRIGGER trg_asset_values_sync_xid BEFORE UPDATE ON asset_values
+  FOR EACH ROW EXECUTE FUNCTION set_sync_xid();
+CREATE TRIGGER trg_liability_values_sync_xid BEFORE UPDATE ON liability_values
+  FOR EACH ROW EXECUTE FUNCTION set_sync_xid();
+CREATE TRIGGER trg_transactions_sync_xid BEFORE UPDATE ON transactions
+  FOR EACH ROW EXECUTE FUNCTION set_sync_xid();
+
+CREATE INDEX IF NOT EXISTS idx_categories_user_sync ON categories(user_id, sync_xid);
+CREATE INDEX IF NOT EXISTS idx_assets_user_sync ON assets(user_id, sync_xid);
+CREATE INDEX IF NOT EXISTS idx_liabilities_user_sync ON liabilities(user_id, sync_xid);
+CREATE INDEX IF NOT EXISTS idx_asset_values_asset_sync ON asset_values(asset_id, sync_xid);
+CREATE INDEX IF NOT EXISTS idx_liability_values_liability_sync ON liability_values(liability_id, sync_xid);
+CREATE INDEX IF NOT EXISTS idx_transactions_user_sync ON transactions(user_id, sync_xid);
+
+-- Lápidas de borrado. Sin FK a users: los borrados en cascada de un usuario
+-- también disparan los triggers y la fila de users ya no existe.
+CREATE TABLE sync_tombstones (
+  tombstone_id BIGSERIAL PRIMARY KEY,
+  user_id INTEGER NOT NULL,
+  entity VARCHAR(30) NOT NULL,
+  entity_id INTEGER NOT NULL,
+  sync_xid xid8 NOT NULL DEFAULT pg_current_xact_id(),
+  deleted_at TIMESTAMP NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX idx_sync_tombstones_user_sync ON sync_tombstones(user_id, sync_xid);
+
+CREATE OR REPLACE FUNCTION record_sync_tombstone() RETURNS trigger AS $$
+BEGIN
+  IF TG_TABLE_NAME = 'categories' THEN
+    INSERT INTO sync_tombstones (user_id, entity, entity_id) VALUES (OLD.user_id, 'category', OLD.category_id);
+  ELSIF TG_TABLE_NAME = 'assets' THEN
+    INSERT INTO sync_tombstones (user_id, entity, entity_id) VALUES (OLD.user_id, 'asset', OLD.asset_id);
+  ELSIF TG_TABLE_NAME = 'liabilities' THEN
+    INSERT INTO sync_tombstones (user_id, entity, entity_id) VALUES (OLD.user_id, 'liability', OLD.liability_id);
+  ELSIF TG_TABLE_NAME = 'transactions' THEN
+    INSERT INTO sync_tombstones (user_id, entity, entity_id) VALUES (OLD.user_id, 'transaction', OLD.transaction_id);
+  ELSIF TG_TABLE_NAME = 'asset_values' THEN
+    -- Si el activo ya no existe (borrado en cascada) basta con la lápida del activo
+    INSERT INTO sync_tombstones (user_id, entity, entity_id)
+      SELECT a.user_id, 'asset_value', OLD.value_id FROM assets a WHERE a.asset_id = OLD.asset_id;
+  ELSIF TG_TABLE_NAME = 'liability_values' THEN
+    INSERT INTO sync_tombstones (user_id, entity, entity_id)
+      SELECT l.user_id, 'liability_value', OLD.value_id FROM liabilities l WHERE l.liability_id = OLD.liability_id;
+  END IF;
+  RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_categories_tombstone AFTER DELETE ON categories
+  FOR EACH ROW EXECUTE FUNCTION record_sync_tombstone();
+CREATE TRIGGER trg_assets_tombstone AFTER DELETE ON assets
+  FOR EACH ROW EXECUTE FUNCTION record_sync_tombstone();
+CREATE TRIGGER trg_liabilities_tombstone AFTER DELETE ON liabilities
+  FOR EACH ROW EXECUTE FUNCTION record_sync_tombstone();
+CREATE TRIGGER trg_asset_values_tombstone AFTER DELETE ON asset_values
+  FOR EACH ROW EXECUTE FUNCTION record_sync_tombstone();
+CREATE TRIGGER trg_liability_values_tombstone AFTER DELETE ON liability_values
+  FOR EACH ROW EXECUTE FUNCTION record_sync_tombstone();
+CREATE TRIGGER trg_transactions_tombstone AFTER DELETE ON transactions
+  FOR EACH ROW EXECUTE FUNCTION record_sync_tombstone();
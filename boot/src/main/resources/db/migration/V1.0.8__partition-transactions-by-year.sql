@@ -0,0 +1,121 @@
+-- ===========================================
+-- V1.0.8__partition-transactions-by-year.sql
+-- ===========================================
+
+-- Particionado de transactions por año de transaction_date.
+-- Las consultas por rango de fechas (dashboard, exportaciones, recarga anual del Excel)
+-- se limitan a las particiones de los años implicados.
+-- La clave primaria pasa a ser (transaction_id, transaction_date): PostgreSQL exige que
+-- incluya la clave de partición. La unicidad de transaction_id la sigue garantizando la secuencia.
+
+-- 1. Apartar la tabla actual conservando la secuencia
+ALTER TABLE transactions RENAME TO transactions_unpartitioned;
+ALTER TABLE transactions_unpartitioned ALTER COLUMN transaction_id DROP DEFAULT;
+ALTER SEQUENCE transactions_transaction_id_seq OWNED BY NONE;
+ALTER TABLE transactions_unpartitioned RENAME CONSTRAINT transactions_pkey TO transactions_unpartitioned_pkey;
+DROP INDEX IF EXISTS idx_transactions_user_date_id;
+DROP INDEX IF EXISTS idx_transactions_user_sync;
+
+-- 2. Tabla particionada
+CREATE TABLE transactions (
+    transaction_id INTEGER NOT NULL DEFAULT nextval('transactions_transaction_id_seq'),
+    user_id INT NOT NULL,
+    category_id INT,
+    asset_id INT,
+    related_asset_id INT,
+    liability_id INT,
+    transaction_type VARCHAR(20) NOT NULL CHECK (transaction_type IN ('income','expense','neutral')),
+    amount DECIMAL(15,2) NOT NULL,
+    transaction_date DATE NOT NULL,
+    description TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMP,
+    sync_xid xid8 NOT NULL DEFAULT pg_current_xact_id(),
+    CONSTRAINT transactions_pkey PRIMARY KEY (transaction_id, transaction_date),
+    CONSTRAINT fk_transactions_user FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
+    CONSTRAINT fk_transactions_category FOREIGN KEY (category_id) REFERENCES categories(category_id) ON DELETE SET NULL,
+    CONSTRAINT fk_transactions_asset FOREIGN KEY (asset_id) REFERENCES assets(asset_id) ON DELETE SET NULL,
+    CONSTRAINT fk_transactions_related_asset FOREIGN KEY (related_asset_id) REFERENCES assets(asset_id) ON DELETE SET NULL,
+    CONSTRAINT fk_transactions_liability FOREIGN KEY (liability_id) REFERENCES liabilities(liability_id) ON DELETE SET NULL
+) PARTITION BY RANGE (transaction_date);
+
+ALTER SEQUENCE transactions_transaction_id_seq OWNED BY transactions.transaction_id;
+
+-- Las fechas fuera de las particiones anuales caen aquí
+CREATE TABLE transactions_default PARTITION OF transactions DEFAULT;
+
+-- 3. Particiones anuales: desde el primer año con datos (máx. 50 años atrás) hasta el año que viene
+DO $$
+DECLARE
+  first_year INTEGER;
+  last_year INTEGER;
+  y INTEGER;
+BEGIN
+  SELECT GREATEST(COALESCE(EXTRACT(YEAR FROM MIN(transaction_date))::int, EXTRACT(YEAR FROM CURRENT_DATE)::int),
+                  EXTRACT(YEAR FROM CURRENT_DATE)::int - 50)
+    INTO first_year
+    FROM transactions_unpartitioned;
+  last_year := EXTRACT(YEAR FROM CURRENT_DATE)::int + 1;
+
+  FOR y IN first_year..last_year LOOP
+    EXECUTE format('CREATE TABLE %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                   'transactions_y' || y, make_date(y, 1, 1), make_date(y + 1, 1, 1));
+  END LOOP;
+END $$;
+
+-- 4. Copiar datos y retirar la tabla antigua
+INSERT INTO transactions (transaction_id, user_id, category_id, asset_id, related_asset_id, liability_id,
+                          transaction_type, amount, transaction_date, description, created_at, updated_at, sync_xid)
+SELECT transaction_id, user_id, category_id, asset_id, related_asset_id, liability_id,
+       transaction_type, amount, transaction_date, description, created_at, updated_at, sync_xid
+FROM transactions_unpartitioned;
+
+DROP TABLE transactions_unpartitioned;
+
+-- 5. Índices (se crean en cada partición)
+CREATE INDEX idx_transactions_user_date_id ON transactions(user_id, transaction_date DESC, transaction_id DESC);
+CREATE INDEX idx_transactions_user_sync ON transactions(user_id, sync_xid);
+
+-- 6. Triggers de sincronización (ver V1.0.7). En una tabla particionada TG_TABLE_NAME es el
+-- nombre de la partición, así que las lápidas de transactions usan su propia función.
+CREATE OR REPLACE FUNCTION record_transaction_tombstone() RETURNS trigger AS $$
+BEGIN
+  -- ensure_transactions_partition mueve filas entre particiones: no son borrados reales
+  IF current_setting('cuentas.moving_partition_rows', true) = 'on' THEN
+    RETURN OLD;
+  END IF;
+  INSERT INTO sync_tombstones (user_id, entity, entity_id) VALUES (OLD.user_id, 'transaction', OLD.transaction_id);
+  RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_transactions_sync_xid BEFORE UPDATE ON transactions
+  FOR EACH ROW EXECUTE FUNCTION set_sync_xid();
+CREATE TRIGGER trg_transactions_tombstone AFTER DELETE ON transactions
+  FOR EACH ROW EXECUTE FUNCTION record_transaction_tombstone();
+
+-- 7. Alta de particiones bajo demanda (la usa el importador Excel antes de recargar un año).
+-- Si la partición por defecto ya tiene filas de ese año, se mueven a la nueva partición.
+CREATE OR REPLACE FUNCTION ensure_transactions_partition(p_year INTEGER) RETURNS VOID AS $$
+DECLARE
+  part_name TEXT := 'transactions_y' || p_year;
+  range_from DATE := make_date(p_year, 1, 1);
+  range_to DATE := make_date(p_year + 1, 1, 1);
+BEGIN
+  IF to_regclass(part_name) IS NOT NULL THEN
+    RETURN;
+  END IF;
+
+  EXECUTE format('CREATE TABLE %I (LIKE transactions INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', part_name);
+
+  PERFORM set_config('cuentas.moving_partition_rows', 'on', true);
+  EXECUTE format('INSERT INTO %I SELECT * FROM transactions_default WHERE transaction_date >= %L AND transaction_date < %L',
+                 part_name, range_from, range_to);
+  EXECUTE format('DELETE FROM transactions_default WHERE transaction_date >= %L AND transaction_date < %L',
+                 range_from, range_to);
+  PERFORM set_config('cuentas.moving_partition_rows', 'off', true);
+
+  EXECUTE format('ALTER TABLE transactions ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                 part_name, range_from, range_to);
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,19 @@
+-- ===========================================
+-- V1.0.9__add-transactions-search-indexes.sql
+-- ===========================================
+
+-- Búsqueda de transacciones por descripción (ver TransactionServiceUseCase.searchTransactions):
+-- texto completo en español más coincidencia aproximada por trigramas.
+-- btree_gin permite incluir user_id en los índices GIN y filtrar por usuario dentro del índice.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+CREATE INDEX IF NOT EXISTS idx_transactions_description_fts
+ON transactions USING GIN (user_id, to_tsvector('spanish', COALESCE(description, '')));
+
+CREATE INDEX IF NOT EXISTS idx_transactions_description_trgm
+ON transactions USING GIN (user_id, description gin_trgm_ops);
+
+-- Transacciones de las categorías cuyo nombre coincide con la búsqueda
+CREATE INDEX IF NOT EXISTS idx_transactions_user_category
+ON transactions(user_id, category_id);
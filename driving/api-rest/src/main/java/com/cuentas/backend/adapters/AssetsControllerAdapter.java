@@ -3,16 +3,22 @@ package com.cuentas.backend.adapters;
 import com.cuentas.backend.domain.Asset;
 import com.cuentas.backend.domain.AssetDetail;
 import com.cuentas.backend.domain.AssetValue;
+import com.cuentas.backend.domain.AssetValuePage;
 import com.cuentas.backend.domain.CreateAssetValueRequest;
 import com.cuentas.backend.application.ports.driving.AssetServicePort;
 import com.cuentas.backend.domain.AssetROI;
+import com.cuentas.backend.domain.AssetReturns;
 import com.cuentas.backend.domain.MonthlyROI;
+import com.cuentas.backend.domain.PortfolioROI;
+import com.cuentas.backend.domain.PortfolioReturns;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -24,25 +30,71 @@ public class AssetsControllerAdapter {
     private static final Logger logger = LoggerFactory.getLogger(AssetsControllerAdapter.class);
 
     private final AssetServicePort assetService;
+    private final UserDataETags eTags;
 
-    public AssetsControllerAdapter(AssetServicePort assetService) {
+    public AssetsControllerAdapter(AssetServicePort assetService, UserDataETags eTags) {
         this.assetService = assetService;
+        this.eTags = eTags;
     }
 
+    /**
+     * Activos con su última valoración. values pide las últimas N (0 = ninguna) y
+     * valuesFrom/valuesTo limitan las valoraciones a una ventana de fechas.
+     */
     @GetMapping()
-    public ResponseEntity<List<Asset>> listAssets(@PathVariable Long userId) {
-        logger.info("Listando assets para userId={}", userId);
-        List<Asset> assets = assetService.listAssets(userId);
-        logger.info("Respuesta listAssets: {}", assets);
-        return ResponseEntity.ok(assets);
+    public ResponseEntity<List<Asset>> listAssets(@PathVariable Long userId,
+                                                  @RequestParam(required = false) Integer values,
+                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate valuesFrom,
+                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate valuesTo,
+                                                  WebRequest request) {
+        logger.info("Listando assets para userId={}, values={}, valuesFrom={}, valuesTo={}", userId, values, valuesFrom, valuesTo);
+        String etag = eTags.of(userId, values, valuesFrom, valuesTo);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        try {
+            List<Asset> assets = assetService.listAssets(userId, values, valuesFrom, valuesTo);
+            logger.info("Respuesta listAssets: {} activos", assets.size());
+            return ResponseEntity.ok().eTag(etag).body(assets);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Historial completo de valoraciones de un activo, paginado (de la más reciente a la más antigua).
+     */
+    @GetMapping("/{assetId}/valuations")
+    public ResponseEntity<AssetValuePage> listAssetValuations(@PathVariable Long userId, @PathVariable Long assetId,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(required = false) Integer limit,
+                                                              WebRequest request) {
+        logger.info("Listando valoraciones del asset assetId={} para userId={}, cursor={}, limit={}", assetId, userId, cursor, limit);
+        String etag = eTags.of(userId, assetId, cursor, limit);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        try {
+            AssetValuePage page = assetService.listAssetValues(userId, assetId, cursor, limit);
+            logger.info("Respuesta listAssetValuations: {} valoraciones", page.getItems().size());
+            return ResponseEntity.ok().eTag(etag).body(page);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{assetId}")
-    public ResponseEntity<Asset> getAsset(@PathVariable Long userId, @PathVariable Long assetId) {
+    public ResponseEntity<Asset> getAsset(@PathVariable Long userId, @PathVariable Long assetId, WebRequest request) {
         logger.info("Obteniendo asset con assetId={} para userId={}", assetId, userId);
+        String etag = eTags.of(userId);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Asset asset = assetService.getAsset(userId, assetId);
         logger.info("Respuesta getAsset: {}", asset);
-        return ResponseEntity.ok(asset);
+        return ResponseEntity.ok().eTag(etag).body(asset);
     }
 
     @PostMapping
@@ -69,6 +121,62 @@ public class AssetsControllerAdapter {
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * ROI por activo y de toda la cartera, con las series mensuales del año, en una sola llamada.
+     */
+    @GetMapping("/roi")
+    public ResponseEntity<PortfolioROI> calculatePortfolioRoi(
+            @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Integer year,
+            WebRequest request) {
+        logger.info("Calculando ROI de cartera para userId={}, startDate={}, endDate={}, year={}", userId, startDate, endDate, year);
+        String etag = eTags.of(userId, startDate, endDate, year);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        try {
+            PortfolioROI roi = assetService.calculatePortfolioROI(userId, startDate, endDate, year);
+            logger.info("Respuesta calculatePortfolioRoi: {} activos, ROI={}", roi.getAssets().size(), roi.getRoiPercentage());
+            return ResponseEntity.ok().eTag(etag).body(roi);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Rentabilidad ponderada por dinero (XIRR) y por tiempo (TWR) de cada activo y de la cartera.
+     */
+    @GetMapping("/returns")
+    public ResponseEntity<PortfolioReturns> getPortfolioReturns(@PathVariable Long userId, WebRequest request) {
+        logger.info("Calculando XIRR/TWR de cartera para userId={}", userId);
+        String etag = eTags.of(userId, "returns");
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        PortfolioReturns returns = assetService.getPortfolioReturns(userId);
+        logger.info("Respuesta getPortfolioReturns: {} activos, XIRR={}", returns.getAssets().size(), returns.getPortfolio().getXirrPercentage());
+        return ResponseEntity.ok().eTag(etag).body(returns);
+    }
+
+    @GetMapping("/{assetId}/returns")
+    public ResponseEntity<AssetReturns> getAssetReturns(@PathVariable Long userId, @PathVariable Long assetId, WebRequest request) {
+        logger.info("Calculando XIRR/TWR para userId={}, assetId={}", userId, assetId);
+        String etag = eTags.of(userId, "returns", assetId);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        AssetReturns returns = assetService.getAssetReturns(userId, assetId);
+        if (returns == null) {
+            logger.warn("Asset no encontrado: assetId={}, userId={}", assetId, userId);
+            return ResponseEntity.notFound().build();
+        }
+        logger.info("Respuesta getAssetReturns: {}", returns);
+        return ResponseEntity.ok().eTag(etag).body(returns);
+    }
+
     @GetMapping("/{assetId}/roi")
     public ResponseEntity<AssetROI> calculateAssetRoi(
             @PathVariable Long userId,
@@ -117,8 +225,29 @@ public class AssetsControllerAdapter {
         }
     }
 
+    /**
+     * Alta o actualización masiva de valoraciones de varios activos (cada elemento lleva su assetId).
+     */
+    @PostMapping("/valuations/bulk")
+    public ResponseEntity<List<AssetValue>> upsertAssetValuations(
+            @PathVariable Long userId,
+            @RequestBody List<CreateAssetValueRequest> request) {
+        logger.info("Carga masiva de valoraciones para userId={}, count={}", userId, request != null ? request.size() : 0);
+        try {
+            List<AssetValue> values = assetService.upsertAssetValues(userId, request);
+            logger.info("Respuesta upsertAssetValuations: {} valoraciones", values.size());
+            return ResponseEntity.ok(values);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (RuntimeException e) {
+            logger.error("Error en la carga masiva de valoraciones: {}", e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @PutMapping("/{assetId}/valuations/{valuationId}")
-    public ResponseEntity<AssetValue> updateAssetValuation(
+    public ResponseEntity<?> updateAssetValuation(
             @PathVariable Long userId,
             @PathVariable Long assetId,
             @PathVariable Long valuationId,
@@ -138,6 +267,11 @@ public class AssetsControllerAdapter {
         } catch (IllegalArgumentException e) {
             logger.warn("Error de validación: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
+        } catch (DuplicateKeyException e) {
+            // Mover la valoración a una fecha que ya tiene otra choca con uq_asset_values_asset_date
+            logger.warn("Ya existe una valoración en {} para assetId={}", request.getValuationDate(), assetId);
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(java.util.Map.of("error", "Ya existe una valoración para el activo en la fecha " + request.getValuationDate()));
         } catch (RuntimeException e) {
             logger.error("Error al actualizar valoración: {}", e.getMessage());
             return ResponseEntity.notFound().build();
@@ -161,13 +295,18 @@ public class AssetsControllerAdapter {
     }
 
     @GetMapping("/{assetId}/detail")
-    public ResponseEntity<AssetDetail> getAssetDetail(@PathVariable Long userId, @PathVariable Long assetId) {
-        logger.info("Obteniendo detalle de assetId={} para userId={}", assetId, userId);
+    public ResponseEntity<AssetDetail> getAssetDetail(@PathVariable Long userId, @PathVariable Long assetId,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(required = false) Integer limit) {
+        logger.info("Obteniendo detalle de assetId={} para userId={}, cursor={}, limit={}", assetId, userId, cursor, limit);
         try {
-            AssetDetail detail = assetService.getAssetDetail(userId, assetId);
+            AssetDetail detail = assetService.getAssetDetail(userId, assetId, cursor, limit);
             logger.info("Respuesta getAssetDetail: valorActual={}, ingresos={}, gastos={}, ROI={}%", 
                     detail.getCurrentValue(), detail.getTotalIncome(), detail.getTotalExpenses(), detail.getRoiPercentage());
             return ResponseEntity.ok(detail);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (RuntimeException e) {
             logger.error("Error al obtener detalle de activo: {}", e.getMessage());
             return ResponseEntity.notFound().build();
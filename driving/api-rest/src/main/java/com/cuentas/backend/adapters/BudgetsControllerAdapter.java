@@ -2,13 +2,16 @@ package com.cuentas.backend.adapters;
 
 import com.cuentas.backend.application.ports.driving.BudgetServicePort;
 import com.cuentas.backend.domain.Budget;
+import com.cuentas.backend.domain.BudgetHistory;
 import com.cuentas.backend.domain.BudgetStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -18,17 +21,23 @@ public class BudgetsControllerAdapter {
     private static final Logger logger = LoggerFactory.getLogger(BudgetsControllerAdapter.class);
 
     private final BudgetServicePort budgetService;
+    private final UserDataETags eTags;
 
-    public BudgetsControllerAdapter(BudgetServicePort budgetService) {
+    public BudgetsControllerAdapter(BudgetServicePort budgetService, UserDataETags eTags) {
         this.budgetService = budgetService;
+        this.eTags = eTags;
     }
 
     @GetMapping
-    public ResponseEntity<List<Budget>> listBudgets(@PathVariable Long userId) {
+    public ResponseEntity<List<Budget>> listBudgets(@PathVariable Long userId, WebRequest request) {
         logger.info("Listando presupuestos para userId={}", userId);
+        String etag = eTags.of(userId);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         List<Budget> budgets = budgetService.listBudgets(userId);
         logger.info("Respuesta listBudgets: {} presupuestos encontrados", budgets.size());
-        return ResponseEntity.ok(budgets);
+        return ResponseEntity.ok().eTag(etag).body(budgets);
     }
 
     @GetMapping("/{budgetId}")
@@ -80,11 +89,33 @@ public class BudgetsControllerAdapter {
     }
 
     @GetMapping("/status")
-    public ResponseEntity<BudgetStatus> getBudgetStatus(@PathVariable Long userId) {
+    public ResponseEntity<BudgetStatus> getBudgetStatus(@PathVariable Long userId, WebRequest request) {
         logger.info("Obteniendo estado de presupuestos para userId={}", userId);
+        // El periodo activo de cada presupuesto depende del día actual
+        String etag = eTags.of(userId, LocalDate.now());
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         BudgetStatus status = budgetService.getBudgetStatus(userId);
         logger.info("Respuesta getBudgetStatus: {} presupuestos activos", status.getItems().size());
-        return ResponseEntity.ok(status);
+        return ResponseEntity.ok().eTag(etag).body(status);
     }
-}
 
+    /**
+     * Serie histórica presupuesto vs. gasto real de cada periodo desde el inicio de cada presupuesto.
+     */
+    @GetMapping("/history")
+    public ResponseEntity<List<BudgetHistory>> getBudgetHistory(@PathVariable Long userId,
+                                                                @RequestParam(required = false) Long budgetId,
+                                                                WebRequest request) {
+        logger.info("Obteniendo histórico de presupuestos para userId={}, budgetId={}", userId, budgetId);
+        // El último periodo de cada serie depende del día actual
+        String etag = eTags.of(userId, LocalDate.now());
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        List<BudgetHistory> history = budgetService.getBudgetHistory(userId, budgetId);
+        logger.info("Respuesta getBudgetHistory: {} presupuestos", history.size());
+        return ResponseEntity.ok().eTag(etag).body(history);
+    }
+}
@@ -0,0 +1,36 @@
+package com.cuentas.backend.adapters;
+
+import com.cuentas.backend.application.ports.driving.CacheStatsServicePort;
+import com.cuentas.backend.domain.CacheStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheControllerAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheControllerAdapter.class);
+
+    private final CacheStatsServicePort cacheStatsService;
+
+    public CacheControllerAdapter(CacheStatsServicePort cacheStatsService) {
+        this.cacheStatsService = cacheStatsService;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<List<CacheStats>> getCacheStats() {
+        logger.info("Obteniendo estadísticas de caché");
+        try {
+            List<CacheStats> stats = cacheStatsService.getCacheStats();
+            logger.info("Respuesta getCacheStats: {} cachés", stats.size());
+            return ResponseEntity.ok(stats);
+        } catch (Exception e) {
+            logger.error("Error al obtener estadísticas de caché: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).build();
+        }
+    }
+}
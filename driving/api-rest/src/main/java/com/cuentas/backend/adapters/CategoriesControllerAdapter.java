@@ -3,12 +3,16 @@ package com.cuentas.backend.adapters;
 import com.cuentas.backend.application.ports.driving.CategoryServicePort;
 import com.cuentas.backend.domain.Category;
 import com.cuentas.backend.domain.CategoryDetail;
+import com.cuentas.backend.domain.CategoryTreeNode;
 import com.cuentas.backend.domain.ReassignTransactionsRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -31,6 +35,25 @@ public class CategoriesControllerAdapter {
         return ResponseEntity.ok(categories);
     }
 
+    /**
+     * Sugerencias para el selector de categorías: primero las que empiezan por q y después
+     * las que tienen una palabra que empieza por q (sin distinguir mayúsculas ni acentos).
+     */
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<Category>> autocompleteCategories(@PathVariable Long userId,
+                                                                 @RequestParam(defaultValue = "") String q,
+                                                                 @RequestParam(required = false) Integer limit) {
+        logger.info("Autocompletando categorías para userId={}, q={}, limit={}", userId, q, limit);
+        try {
+            List<Category> categories = categoryService.autocompleteCategories(userId, q, limit);
+            logger.info("Respuesta autocompleteCategories: {} categorías", categories.size());
+            return ResponseEntity.ok(categories);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{categoryId}")
     public ResponseEntity<Category> getCategory(@PathVariable Long userId, @PathVariable Long categoryId) {
         logger.info("Obteniendo categoría con categoryId={} para userId={}", categoryId, userId);
@@ -73,6 +96,28 @@ public class CategoriesControllerAdapter {
         }
     }
 
+    /**
+     * Árbol de categorías con totales de ingresos y gastos acumulados por subárbol.
+     * Con rootCategoryId devuelve solo ese subárbol; las fechas acotan los totales.
+     */
+    @GetMapping("/tree")
+    public ResponseEntity<List<CategoryTreeNode>> getCategoryTree(
+            @PathVariable Long userId,
+            @RequestParam(required = false) Long rootCategoryId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        logger.info("Obteniendo árbol de categorías para userId={}, rootCategoryId={}, startDate={}, endDate={}",
+                userId, rootCategoryId, startDate, endDate);
+        try {
+            List<CategoryTreeNode> tree = categoryService.getCategoryTree(userId, rootCategoryId, startDate, endDate);
+            logger.info("Respuesta getCategoryTree: {} nodos raíz", tree.size());
+            return ResponseEntity.ok(tree);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{categoryId}/subcategories")
     public ResponseEntity<List<Category>> getSubcategories(@PathVariable Long userId, @PathVariable Long categoryId) {
         logger.info("Obteniendo subcategorías de categoryId={} para userId={}", categoryId, userId);
@@ -82,13 +127,18 @@ public class CategoriesControllerAdapter {
     }
 
     @GetMapping("/{categoryId}/detail")
-    public ResponseEntity<CategoryDetail> getCategoryDetail(@PathVariable Long userId, @PathVariable Long categoryId) {
-        logger.info("Obteniendo detalle de categoryId={} para userId={}", categoryId, userId);
+    public ResponseEntity<CategoryDetail> getCategoryDetail(@PathVariable Long userId, @PathVariable Long categoryId,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(required = false) Integer limit) {
+        logger.info("Obteniendo detalle de categoryId={} para userId={}, cursor={}, limit={}", categoryId, userId, cursor, limit);
         try {
-            CategoryDetail detail = categoryService.getCategoryDetail(userId, categoryId);
+            CategoryDetail detail = categoryService.getCategoryDetail(userId, categoryId, cursor, limit);
             logger.info("Respuesta getCategoryDetail: ingresos={}, gastos={}, transacciones={}", 
                     detail.getTotalIncome(), detail.getTotalExpenses(), detail.getTransactionCount());
             return ResponseEntity.ok(detail);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (RuntimeException e) {
             logger.error("Error al obtener detalle de categoría: {}", e.getMessage());
             return ResponseEntity.notFound().build();
@@ -0,0 +1,49 @@
+package com.cuentas.backend.adapters;
+
+import com.cuentas.backend.application.ports.driving.CategoryMergeServicePort;
+import com.cuentas.backend.domain.CategoryMergeJob;
+import com.cuentas.backend.domain.CategoryMergeRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Fusión de categorías en segundo plano: el POST encola el trabajo y devuelve 202,
+ * el progreso se consulta con GET sobre el trabajo.
+ */
+@RestController
+@RequestMapping("/api/users/{userId}/categories/merge")
+public class CategoryMergeControllerAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryMergeControllerAdapter.class);
+
+    private final CategoryMergeServicePort categoryMergeService;
+
+    public CategoryMergeControllerAdapter(CategoryMergeServicePort categoryMergeService) {
+        this.categoryMergeService = categoryMergeService;
+    }
+
+    @PostMapping
+    public ResponseEntity<CategoryMergeJob> startMerge(@PathVariable Long userId, @RequestBody CategoryMergeRequest request) {
+        logger.info("Fusión de categorías para userId={}, request={}", userId, request);
+        try {
+            CategoryMergeJob job = categoryMergeService.startMerge(userId, request);
+            logger.info("Fusión encolada: jobId={}", job.getJobId());
+            return ResponseEntity.accepted().body(job);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<CategoryMergeJob> getMergeJob(@PathVariable Long userId, @PathVariable Long jobId) {
+        logger.info("Consultando fusión de categorías userId={}, jobId={}", userId, jobId);
+        CategoryMergeJob job = categoryMergeService.getMergeJob(userId, jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+}
@@ -8,8 +8,10 @@ import com.cuentas.backend.domain.PeriodSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -21,9 +23,11 @@ public class DashboardControllerAdapter {
     private static final Logger logger = LoggerFactory.getLogger(DashboardControllerAdapter.class);
 
     private final DashboardServicePort dashboardService;
+    private final UserDataETags eTags;
 
-    public DashboardControllerAdapter(DashboardServicePort dashboardService) {
+    public DashboardControllerAdapter(DashboardServicePort dashboardService, UserDataETags eTags) {
         this.dashboardService = dashboardService;
+        this.eTags = eTags;
     }
 
     // =======================
@@ -34,12 +38,17 @@ public class DashboardControllerAdapter {
     public ResponseEntity<DashboardMetrics> getDashboard(
             @PathVariable Long userId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            WebRequest request
     ) {
         logger.info("Obteniendo dashboard para userId={}, startDate={}, endDate={}", userId, startDate, endDate);
+        String etag = eTags.of(userId);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         DashboardMetrics metrics = dashboardService.getMetrics(userId, startDate, endDate);
         logger.info("Respuesta getDashboard: {}", metrics);
-        return ResponseEntity.ok(metrics);
+        return ResponseEntity.ok().eTag(etag).body(metrics);
     }
 
     /**
@@ -49,25 +58,47 @@ public class DashboardControllerAdapter {
     @GetMapping("/summary")
     public ResponseEntity<PeriodSummary> getPeriodSummary(
             @PathVariable Long userId,
-            @RequestParam(defaultValue = "month") String period // "month", "lastMonth", "year"
+            @RequestParam(defaultValue = "month") String period, // "month", "lastMonth", "year"
+            WebRequest request
     ) {
         logger.info("Obteniendo resumen financiero para userId={} en periodo={}", userId, period);
+        // El periodo se resuelve contra la fecha actual
+        String etag = eTags.of(userId, LocalDate.now());
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         PeriodSummary summary = dashboardService.getPeriodSummary(userId, period);
         logger.info("Respuesta getPeriodSummary: {}", summary);
-        return ResponseEntity.ok(summary);
+        return ResponseEntity.ok().eTag(etag).body(summary);
     }
 
     /**
-     * Devuelve la evolución mensual del usuario durante un año.
+     * Devuelve la evolución mensual del usuario durante un año, o durante
+     * un rango de años si se indican startYear/endYear.
      */
     @GetMapping("/summary/monthly")
     public ResponseEntity<List<PeriodSummary>> getMonthlySummary(
             @PathVariable Long userId,
-            @RequestParam(required = false) Integer year
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) Integer startYear,
+            @RequestParam(required = false) Integer endYear,
+            WebRequest request
     ) {
-        logger.info("Obteniendo evolución mensual de ingresos/gastos para userId={}, year={}", userId, year);
-        List<PeriodSummary> summaries = dashboardService.getMonthlySummary(userId, year);
-        return ResponseEntity.ok(summaries);
+        logger.info("Obteniendo evolución mensual de ingresos/gastos para userId={}, year={}, startYear={}, endYear={}", userId, year, startYear, endYear);
+        // Sin año explícito se usa el actual
+        String etag = eTags.of(userId, LocalDate.now().getYear());
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        try {
+            List<PeriodSummary> summaries = (startYear != null || endYear != null)
+                    ? dashboardService.getMonthlySummary(userId, startYear, endYear)
+                    : dashboardService.getMonthlySummary(userId, year);
+            return ResponseEntity.ok().eTag(etag).body(summaries);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     // =======================
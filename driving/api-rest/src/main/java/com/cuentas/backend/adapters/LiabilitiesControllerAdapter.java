@@ -5,14 +5,17 @@ import com.cuentas.backend.domain.Interest;
 import com.cuentas.backend.domain.Liability;
 import com.cuentas.backend.domain.LiabilityDetail;
 import com.cuentas.backend.domain.LiabilityValue;
+import com.cuentas.backend.domain.LiabilityValuePage;
 import com.cuentas.backend.domain.CreateLiabilityValueRequest;
 import com.cuentas.backend.domain.CreateInterestRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -27,12 +30,42 @@ public class LiabilitiesControllerAdapter {
         this.liabilityService = liabilityService;
     }
 
+    /**
+     * Pasivos con su último valor. values pide los últimos N (0 = ninguno) y
+     * valuesFrom/valuesTo limitan los valores a una ventana de fechas.
+     */
     @GetMapping
-    public ResponseEntity<List<Liability>> listLiabilities(@PathVariable Long userId) {
-        logger.info("Listando liabilities para userId={}", userId);
-        List<Liability> liabilities = liabilityService.listLiabilities(userId);
-        logger.info("Respuesta listLiabilities: {}", liabilities);
-        return ResponseEntity.ok(liabilities);
+    public ResponseEntity<List<Liability>> listLiabilities(@PathVariable Long userId,
+                                                           @RequestParam(required = false) Integer values,
+                                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate valuesFrom,
+                                                           @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate valuesTo) {
+        logger.info("Listando liabilities para userId={}, values={}, valuesFrom={}, valuesTo={}", userId, values, valuesFrom, valuesTo);
+        try {
+            List<Liability> liabilities = liabilityService.listLiabilities(userId, values, valuesFrom, valuesTo);
+            logger.info("Respuesta listLiabilities: {} pasivos", liabilities.size());
+            return ResponseEntity.ok(liabilities);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Historial completo de valores de un pasivo, paginado (del más reciente al más antiguo).
+     */
+    @GetMapping("/{liabilityId}/values")
+    public ResponseEntity<LiabilityValuePage> listLiabilityValues(@PathVariable Long userId, @PathVariable Long liabilityId,
+                                                                  @RequestParam(required = false) String cursor,
+                                                                  @RequestParam(required = false) Integer limit) {
+        logger.info("Listando valores del pasivo liabilityId={} para userId={}, cursor={}, limit={}", liabilityId, userId, cursor, limit);
+        try {
+            LiabilityValuePage page = liabilityService.listLiabilityValues(userId, liabilityId, cursor, limit);
+            logger.info("Respuesta listLiabilityValues: {} valores", page.getItems().size());
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{liabilityId}")
@@ -92,6 +125,27 @@ public class LiabilitiesControllerAdapter {
         }
     }
 
+    /**
+     * Alta o actualización masiva de snapshots de varios pasivos (cada elemento lleva su liabilityId).
+     */
+    @PostMapping("/values/bulk")
+    public ResponseEntity<List<LiabilityValue>> upsertLiabilityValues(
+            @PathVariable Long userId,
+            @RequestBody List<CreateLiabilityValueRequest> request) {
+        logger.info("Carga masiva de snapshots para userId={}, count={}", userId, request != null ? request.size() : 0);
+        try {
+            List<LiabilityValue> values = liabilityService.upsertLiabilityValues(userId, request);
+            logger.info("Respuesta upsertLiabilityValues: {} snapshots", values.size());
+            return ResponseEntity.ok(values);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (RuntimeException e) {
+            logger.error("Error en la carga masiva de snapshots: {}", e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @PostMapping("/{liabilityId}/interests")
     public ResponseEntity<Interest> createInterest(
             @PathVariable Long userId,
@@ -178,13 +232,18 @@ public class LiabilitiesControllerAdapter {
     }
 
     @GetMapping("/{liabilityId}/detail")
-    public ResponseEntity<LiabilityDetail> getLiabilityDetail(@PathVariable Long userId, @PathVariable Long liabilityId) {
-        logger.info("Obteniendo detalle de liabilityId={} para userId={}", liabilityId, userId);
+    public ResponseEntity<LiabilityDetail> getLiabilityDetail(@PathVariable Long userId, @PathVariable Long liabilityId,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(required = false) Integer limit) {
+        logger.info("Obteniendo detalle de liabilityId={} para userId={}, cursor={}, limit={}", liabilityId, userId, cursor, limit);
         try {
-            LiabilityDetail detail = liabilityService.getLiabilityDetail(userId, liabilityId);
+            LiabilityDetail detail = liabilityService.getLiabilityDetail(userId, liabilityId, cursor, limit);
             logger.info("Respuesta getLiabilityDetail: saldoPendiente={}, capitalPagado={}, progreso={}%", 
                     detail.getCurrentOutstandingBalance(), detail.getPrincipalPaid(), detail.getProgressPercentage());
             return ResponseEntity.ok(detail);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (RuntimeException e) {
             logger.error("Error al obtener detalle de pasivo: {}", e.getMessage());
             return ResponseEntity.notFound().build();
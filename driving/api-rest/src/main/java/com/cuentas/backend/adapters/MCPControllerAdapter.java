@@ -224,8 +224,14 @@ public class MCPControllerAdapter {
                     result = dashboardService.getPeriodSummary(uid, period);
                     break;
                 case "getMonthlySummary":
-                    result = dashboardService.getMonthlySummary(((Number) params.get("userId")).longValue(),
-                            toInteger(params.get("year")));
+                    if (params.get("startYear") != null || params.get("endYear") != null) {
+                        result = dashboardService.getMonthlySummary(((Number) params.get("userId")).longValue(),
+                                toInteger(params.get("startYear")),
+                                toInteger(params.get("endYear")));
+                    } else {
+                        result = dashboardService.getMonthlySummary(((Number) params.get("userId")).longValue(),
+                                toInteger(params.get("year")));
+                    }
                     break;
                 case "getLiabilityProgress":
                     result = dashboardService.getLiabilityProgress(
@@ -0,0 +1,47 @@
+package com.cuentas.backend.adapters;
+
+import com.cuentas.backend.application.ports.driving.SpendingServicePort;
+import com.cuentas.backend.domain.SpendingRangeTotal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/users/{userId}/spending")
+public class SpendingControllerAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpendingControllerAdapter.class);
+
+    private final SpendingServicePort spendingService;
+
+    public SpendingControllerAdapter(SpendingServicePort spendingService) {
+        this.spendingService = spendingService;
+    }
+
+    /**
+     * Total de un tipo de movimiento entre dos fechas (incluidas), de una categoría o de todas.
+     */
+    @GetMapping("/total")
+    public ResponseEntity<SpendingRangeTotal> getRangeTotal(
+            @PathVariable Long userId,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(defaultValue = "expense") String type,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+    ) {
+        logger.info("Total por rango para userId={}, categoryId={}, type={}, startDate={}, endDate={}",
+                userId, categoryId, type, startDate, endDate);
+        try {
+            SpendingRangeTotal total = spendingService.getRangeTotal(userId, categoryId, type, startDate, endDate);
+            logger.info("Respuesta getRangeTotal: {}", total.getTotal());
+            return ResponseEntity.ok(total);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
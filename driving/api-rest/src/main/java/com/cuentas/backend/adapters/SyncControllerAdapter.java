@@ -0,0 +1,41 @@
+package com.cuentas.backend.adapters;
+
+import com.cuentas.backend.application.ports.driving.SyncServicePort;
+import com.cuentas.backend.domain.SyncDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/users/{userId}/sync")
+public class SyncControllerAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncControllerAdapter.class);
+
+    private final SyncServicePort syncService;
+
+    public SyncControllerAdapter(SyncServicePort syncService) {
+        this.syncService = syncService;
+    }
+
+    /**
+     * Devuelve las categorías, activos, pasivos, valoraciones y transacciones creados o
+     * modificados desde la marca de agua, más los borrados. Sin marca de agua devuelve todo.
+     */
+    @GetMapping
+    public ResponseEntity<SyncDelta> sync(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String watermark
+    ) {
+        logger.info("Sincronización para userId={}, watermark={}", userId, watermark);
+        try {
+            SyncDelta delta = syncService.getChangesSince(userId, watermark);
+            logger.info("Respuesta sync: watermark={}, fullSync={}", delta.getWatermark(), delta.getFullSync());
+            return ResponseEntity.ok(delta);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
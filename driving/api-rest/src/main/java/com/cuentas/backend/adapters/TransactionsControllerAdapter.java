@@ -1,13 +1,18 @@
 package com.cuentas.backend.adapters;
 
 import com.cuentas.backend.application.ports.driving.TransactionServicePort;
+import com.cuentas.backend.domain.BulkTransactionResult;
+import com.cuentas.backend.domain.CategorySuggestion;
 import com.cuentas.backend.domain.Transaction;
+import com.cuentas.backend.domain.TransactionPage;
+import com.cuentas.backend.domain.TransactionSearchPage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -18,12 +23,20 @@ public class TransactionsControllerAdapter {
 
     private static final Logger logger = LoggerFactory.getLogger(TransactionsControllerAdapter.class);
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final TransactionServicePort transactionService;
+    private final UserDataETags eTags;
 
-    public TransactionsControllerAdapter(TransactionServicePort transactionService) {
+    public TransactionsControllerAdapter(TransactionServicePort transactionService, UserDataETags eTags) {
         this.transactionService = transactionService;
+        this.eTags = eTags;
     }
 
+    /**
+     * Lista paginada por cursor, de la más reciente a la más antigua.
+     * El cursor de la siguiente página se devuelve en la cabecera X-Next-Cursor.
+     */
     @GetMapping
     public ResponseEntity<List<Transaction>> listTransactions(@PathVariable Long userId,
                                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
@@ -31,21 +44,83 @@ public class TransactionsControllerAdapter {
                                                               @RequestParam(required = false) Long liabilityId,
                                                               @RequestParam(required = false) Long assetId,
                                                               @RequestParam(required = false) Long categoryId,
-                                                              @RequestParam(required = false) Long relatedAssetId
+                                                              @RequestParam(required = false) Long relatedAssetId,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(required = false) Integer limit,
+                                                              WebRequest request
                                                               ) {
-        logger.info("Listando transacciones para userId={}, startDate={}, endDate={}, liabilityId={}, assetId={}, categoryId={}, relatedAssetId={}",
-                userId, startDate, endDate, liabilityId, assetId, categoryId, relatedAssetId);
-        List<Transaction> transactions = transactionService.listTransactions(userId, startDate, endDate, liabilityId, assetId, categoryId, relatedAssetId);
-        logger.info("Respuesta listTransactions: {}", transactions);
-        return ResponseEntity.ok(transactions);
+        logger.info("Listando transacciones para userId={}, startDate={}, endDate={}, liabilityId={}, assetId={}, categoryId={}, relatedAssetId={}, cursor={}, limit={}",
+                userId, startDate, endDate, liabilityId, assetId, categoryId, relatedAssetId, cursor, limit);
+        String etag = eTags.of(userId);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        try {
+            TransactionPage page = transactionService.listTransactions(userId, startDate, endDate, liabilityId, assetId, categoryId, relatedAssetId, cursor, limit);
+            logger.info("Respuesta listTransactions: {} transacciones, nextCursor={}", page.getItems().size(), page.getNextCursor());
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag);
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Búsqueda por texto (descripción y nombres de categoría, activo y pasivo), ordenada por relevancia.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<TransactionSearchPage> searchTransactions(@PathVariable Long userId,
+                                                                    @RequestParam String q,
+                                                                    @RequestParam(required = false) Integer page,
+                                                                    @RequestParam(required = false) Integer size,
+                                                                    WebRequest request) {
+        logger.info("Buscando transacciones para userId={}, q={}, page={}, size={}", userId, q, page, size);
+        String etag = eTags.of(userId);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        try {
+            TransactionSearchPage result = transactionService.searchTransactions(userId, q, page, size);
+            logger.info("Respuesta searchTransactions: {} resultados, hasMore={}", result.getItems().size(), result.getHasMore());
+            return ResponseEntity.ok().eTag(etag).body(result);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Categoría sugerida para una descripción según el histórico del usuario (204 si no hay sugerencia).
+     */
+    @GetMapping("/suggest-category")
+    public ResponseEntity<CategorySuggestion> suggestCategory(@PathVariable Long userId,
+                                                              @RequestParam String description,
+                                                              @RequestParam(required = false) String type) {
+        logger.info("Sugiriendo categoría para userId={}, description={}, type={}", userId, description, type);
+        try {
+            CategorySuggestion suggestion = transactionService.suggestCategory(userId, description, type);
+            logger.info("Respuesta suggestCategory: {}", suggestion);
+            return suggestion == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(suggestion);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{transactionId}")
-    public ResponseEntity<Transaction> getTransaction(@PathVariable Long userId, @PathVariable Long transactionId) {
+    public ResponseEntity<Transaction> getTransaction(@PathVariable Long userId, @PathVariable Long transactionId, WebRequest request) {
         logger.info("Obteniendo transacción con transactionId={} para userId={}", transactionId, userId);
+        String etag = eTags.of(userId);
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
         Transaction transaction = transactionService.getTransaction(userId, transactionId);
         logger.info("Respuesta getTransaction: {}", transaction);
-        return ResponseEntity.ok(transaction);
+        return ResponseEntity.ok().eTag(etag).body(transaction);
     }
 
     @PostMapping
@@ -56,6 +131,22 @@ public class TransactionsControllerAdapter {
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
 
+    /**
+     * Alta masiva de transacciones en una única transacción (todo o nada).
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<?> createTransactions(@PathVariable Long userId, @RequestBody List<Transaction> transactions) {
+        logger.info("Alta masiva de transacciones para userId={}, count={}", userId, transactions != null ? transactions.size() : 0);
+        try {
+            BulkTransactionResult result = transactionService.createTransactions(userId, transactions);
+            logger.info("Respuesta createTransactions: {} transacciones en {} ms", result.getCount(), result.getElapsedMillis());
+            return ResponseEntity.status(HttpStatus.CREATED).body(result);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Error de validación: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
+        }
+    }
+
     @PutMapping("/{transactionId}")
     public ResponseEntity<Transaction> updateTransaction(@PathVariable Long userId, @PathVariable Long transactionId, @RequestBody Transaction transaction) {
         logger.info("Actualizando transacción con transactionId={} para userId={}, transaction={}", transactionId, userId, transaction);
@@ -0,0 +1,140 @@
+package com.cuentas.backend.adapters;
+
+import com.cuentas.backend.application.ports.driving.TransactionServicePort;
+import com.cuentas.backend.domain.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exportación en streaming del histórico de transacciones (NDJSON o CSV).
+ * Las filas se escriben según llegan del cursor JDBC, por lo que la memoria
+ * usada no depende del número de transacciones.
+ */
+@RestController
+@RequestMapping("/api/users/{userId}/transactions/export")
+public class TransactionsExportControllerAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionsExportControllerAdapter.class);
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+    private static final String CSV_HEADER =
+            "transactionId,transactionDate,type,amount,categoryId,assetId,relatedAssetId,liabilityId,description\n";
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final TransactionServicePort transactionService;
+    private final ObjectMapper objectMapper;
+
+    public TransactionsExportControllerAdapter(TransactionServicePort transactionService, ObjectMapper objectMapper) {
+        this.transactionService = transactionService;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "ndjson") String format, // "ndjson" o "csv"
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+    ) {
+        logger.info("Exportando transacciones para userId={}, format={}, gzip={}, startDate={}, endDate={}",
+                userId, format, gzip, startDate, endDate);
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            logger.warn("Formato de exportación no soportado: {}", format);
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = out -> {
+            AtomicLong rows = new AtomicLong();
+            OutputStream target = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+            OutputStream buffered = new BufferedOutputStream(target, BUFFER_SIZE);
+            if (csv) {
+                buffered.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+            }
+            try {
+                transactionService.streamTransactions(userId, startDate, endDate, t -> {
+                    try {
+                        if (csv) {
+                            buffered.write(toCsvLine(t).getBytes(StandardCharsets.UTF_8));
+                        } else {
+                            buffered.write(objectMapper.writeValueAsBytes(t));
+                            buffered.write('\n');
+                        }
+                        rows.incrementAndGet();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                // Normalmente el cliente ha cerrado la conexión
+                logger.warn("Exportación interrumpida para userId={} tras {} filas: {}", userId, rows.get(), e.getMessage());
+                throw e.getCause();
+            }
+            buffered.flush();
+            if (target instanceof GZIPOutputStream gz) {
+                gz.finish();
+            }
+            logger.info("Exportación completada para userId={}: {} filas", userId, rows.get());
+        };
+
+        String filename = "transactions-" + userId + (csv ? ".csv" : ".ndjson");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(csv ? CSV : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    private static String toCsvLine(Transaction t) {
+        return new StringBuilder(128)
+                .append(t.getTransactionId()).append(',')
+                .append(t.getTransactionDate()).append(',')
+                .append(csvField(t.getType())).append(',')
+                .append(amount(t.getAmount())).append(',')
+                .append(nullToEmpty(t.getCategoryId())).append(',')
+                .append(nullToEmpty(t.getAssetId())).append(',')
+                .append(nullToEmpty(t.getRelatedAssetId())).append(',')
+                .append(nullToEmpty(t.getLiabilityId())).append(',')
+                .append(csvField(t.getDescription()))
+                .append('\n')
+                .toString();
+    }
+
+    // Sin notación científica (1.0E7) para hojas de cálculo y reimportaciones
+    private static String amount(Double value) {
+        return value == null ? "" : BigDecimal.valueOf(value).toPlainString();
+    }
+
+    private static String nullToEmpty(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    private static String csvField(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
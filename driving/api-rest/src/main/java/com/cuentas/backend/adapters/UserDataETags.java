@@ -0,0 +1,28 @@
+package com.cuentas.backend.adapters;
+
+import com.cuentas.backend.application.ports.driving.DataVersionServicePort;
+import org.springframework.stereotype.Component;
+
+/**
+ * Genera ETags fuertes a partir de la versión de datos del usuario.
+ * Los cualificadores extra (p. ej. la fecha actual) cubren respuestas que
+ * dependen de algo más que los datos del usuario.
+ */
+@Component
+public class UserDataETags {
+
+    private final DataVersionServicePort dataVersionService;
+
+    public UserDataETags(DataVersionServicePort dataVersionService) {
+        this.dataVersionService = dataVersionService;
+    }
+
+    public String of(Long userId, Object... qualifiers) {
+        StringBuilder etag = new StringBuilder("\"u").append(userId)
+                .append("-v").append(dataVersionService.getDataVersion(userId));
+        for (Object qualifier : qualifiers) {
+            etag.append('-').append(qualifier);
+        }
+        return etag.append('"').toString();
+    }
+}